@@ -0,0 +1,55 @@
+package com.github.ucov.benchmarks;
+
+import com.github.maracas.roseau.api.model.API;
+import com.github.ucov.api.ApiSnapshot;
+import com.github.ucov.spoon.SpoonCodeDirectoryFilter;
+import org.openjdk.jmh.annotations.*;
+import spoon.reflect.CtModel;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.visitor.Filter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A synthetic corpus with its API and client models, built once per trial and shared by the benchmarks
+ * of Spoon and Roseau based hot paths
+ */
+@State(Scope.Benchmark)
+public class CorpusState {
+    /**
+     * Number of library types (and client classes)
+     */
+    @Param({"10", "100", "500"})
+    public int types;
+
+    /**
+     * Number of fields and methods per library type
+     */
+    @Param({"5", "20"})
+    public int members;
+
+    public SyntheticCorpus corpus;
+    public API api;
+    public ApiSnapshot apiSnapshot;
+    public CtModel clientModel;
+    public Filter<CtElement> clientFilter;
+    public List<CtType<?>> clientTypes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = new SyntheticCorpus(types, members);
+        api = corpus.getApiModel();
+        apiSnapshot = ApiSnapshot.of(api);
+        clientModel = corpus.getClientModel();
+        clientFilter = new SpoonCodeDirectoryFilter(new ArrayList<>(List.of(corpus.getClientSourcePath())), false);
+        clientTypes = clientModel.getAllTypes().stream().filter(clientFilter::matches).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        corpus.close();
+    }
+}
@@ -0,0 +1,133 @@
+package com.github.ucov.benchmarks;
+
+import com.github.ucov.reports.html.DatabaseManager;
+import com.github.ucov.reports.html.types.ApiType;
+import com.github.ucov.reports.html.types.ClientType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries the HTML report database; each benchmark runs one query against a database of the given size
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DatabaseManagerBenchmark {
+    private static final int ELEMENTS_PER_FILE = 10;
+    private static final int FILES_PER_PACKAGE = 10;
+    private static final int USAGES_PER_ELEMENT = 4;
+    private static final int ELEMENTS_PER_CLIENT = 20;
+
+    /**
+     * Number of API elements, there are USAGES_PER_ELEMENT usages per element
+     */
+    @Param({"1000", "10000"})
+    public int elements;
+
+    private DatabaseManager databaseManager;
+    private int lastElement;
+    private String lastPackage;
+    private String lastFile;
+
+    private static String getPackage(int element) {
+        return "pkg" + (element / (ELEMENTS_PER_FILE * FILES_PER_PACKAGE));
+    }
+
+    private static String getClass(int element) {
+        return "Class" + (element / ELEMENTS_PER_FILE);
+    }
+
+    private static String getFile(int element) {
+        return "src/" + getPackage(element) + "/" + getClass(element) + ".java";
+    }
+
+    private static String getClientClass(int client) {
+        return "Client" + client;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        databaseManager = new DatabaseManager();
+
+        for (int element = 0; element < elements; element++) {
+            databaseManager.addAPIElement(getPackage(element), getClass(element), "member" + element, getFile(element),
+                    getClass(element) + ".java", element % ELEMENTS_PER_FILE, element % ELEMENTS_PER_FILE, 1, 1,
+                    "METHOD", "PUBLIC", "NONE", "NO_TESTED", "NO_TESTED", "NO_TESTED");
+        }
+
+        for (int file = 0; file < elements / ELEMENTS_PER_FILE; file++) {
+            int element = file * ELEMENTS_PER_FILE;
+            databaseManager.addCompatibility(getPackage(element), getClass(element) + ".java",
+                    1, 0, 0, 1, 5, 2, 3, 10, 1, 0, 0, 1, 1, 0, 0, 1);
+        }
+
+        int clients = Math.max(1, elements / ELEMENTS_PER_CLIENT);
+        for (int client = 0; client < clients; client++) {
+            databaseManager.addClient(ClientType.CLIENT.name(), "client", "client.pkg", getClientClass(client), "run",
+                    getClientClass(client) + ".java", client, client, 1, 1);
+        }
+
+        for (int element = 0; element < elements; element++) {
+            for (int usage = 0; usage < USAGES_PER_ELEMENT; usage++) {
+                databaseManager.addUsage(element, (element + usage) % clients, usage, usage, 1, 1, "INVOCATION", "CALL", "EXTERNAL");
+            }
+        }
+
+        // Worst case for linear scans
+        lastElement = elements - 1;
+        lastPackage = getPackage(lastElement);
+        lastFile = getFile(lastElement);
+    }
+
+    @Benchmark
+    public int getElementId() {
+        return databaseManager.getElementId(lastPackage, getClass(lastElement), "member" + lastElement, lastElement % ELEMENTS_PER_FILE);
+    }
+
+    @Benchmark
+    public List<?> getPackages() {
+        return databaseManager.getPackages();
+    }
+
+    @Benchmark
+    public List<?> getFiles() {
+        return databaseManager.getFiles(lastPackage);
+    }
+
+    @Benchmark
+    public List<?> getElements() {
+        return databaseManager.getElements(lastFile);
+    }
+
+    @Benchmark
+    public List<?> getCompatibilities() {
+        return databaseManager.getCompatibilities(lastPackage);
+    }
+
+    @Benchmark
+    public List<?> getPackagesCompatibilities() {
+        return databaseManager.getPackagesCompatibilities();
+    }
+
+    @Benchmark
+    public boolean checkUsage() {
+        return databaseManager.checkUsage(lastElement, "INVOCATION", ApiType.CLIENT, ClientType.CLIENT);
+    }
+
+    @Benchmark
+    public int countNbUsage() {
+        return databaseManager.countNbUsage(lastElement, "INVOCATION", ApiType.CLIENT, ClientType.CLIENT);
+    }
+
+    @Benchmark
+    public int getClientId() {
+        int client = Math.max(1, elements / ELEMENTS_PER_CLIENT) - 1;
+        return databaseManager.getClientId(ClientType.CLIENT.name(), "client", "client.pkg", getClientClass(client),
+                client, client, 1, 1, getClientClass(client) + ".java", "run");
+    }
+}
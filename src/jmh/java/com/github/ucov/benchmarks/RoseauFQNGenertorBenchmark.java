@@ -0,0 +1,50 @@
+package com.github.ucov.benchmarks;
+
+import com.github.maracas.roseau.api.model.ClassDecl;
+import com.github.maracas.roseau.api.model.ConstructorDecl;
+import com.github.maracas.roseau.api.model.MethodDecl;
+import com.github.maracas.roseau.api.model.TypeDecl;
+import com.github.ucov.RoseauFQNGenertor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the fully qualified names of every method and constructor of the API
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoseauFQNGenertorBenchmark {
+    private List<MethodDecl> methods;
+    private List<ConstructorDecl> constructors;
+
+    @Setup(Level.Trial)
+    public void setUp(CorpusState state) {
+        methods = state.api.getExportedTypes().flatMap(TypeDecl::getAllMethods).toList();
+        constructors = state.api.getExportedTypes()
+                .filter(ClassDecl.class::isInstance)
+                .map(ClassDecl.class::cast)
+                .flatMap(t -> t.getConstructors().stream())
+                .toList();
+    }
+
+    @Benchmark
+    public void methodNames(Blackhole blackhole) {
+        for (MethodDecl method : methods) {
+            blackhole.consume(RoseauFQNGenertor.getFullyQualifiedNameFromRoseauMethodDecl(method));
+        }
+    }
+
+    @Benchmark
+    public void constructorNames(Blackhole blackhole) {
+        for (ConstructorDecl constructor : constructors) {
+            blackhole.consume(RoseauFQNGenertor.getFullyQualifiedNameFromRoseauConstructorDecl(constructor));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.ucov.benchmarks;
+
+import com.github.ucov.models.Project;
+import com.github.ucov.models.ProjectType;
+import com.github.ucov.models.UsageStore;
+import com.github.ucov.sum.SUMGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates the SUM of the corpus library
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SUMGeneratorBenchmark {
+    private Project project;
+
+    @Setup(Level.Trial)
+    public void setUp(CorpusState state) {
+        project = new Project("library", ProjectType.LIBRARY_MAIN, state.corpus.getLibraryLocation());
+    }
+
+    @Benchmark
+    public UsageStore getSUM(CorpusState state) {
+        return SUMGenerator.getSUM(state.apiSnapshot, project);
+    }
+}
@@ -0,0 +1,41 @@
+package com.github.ucov.benchmarks;
+
+import com.github.ucov.api.ApiSymbolIndex;
+import com.github.ucov.models.UsageStore;
+import com.github.ucov.spoon.visitors.SpoonApiModelVisitor;
+import org.openjdk.jmh.annotations.*;
+import spoon.reflect.declaration.CtType;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans the client classes of the corpus, i.e. the per-node matching of client elements against the API
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpoonApiModelVisitorBenchmark {
+    private ApiSymbolIndex apiSymbolIndex;
+
+    @Setup(Level.Trial)
+    public void setUp(CorpusState state) {
+        apiSymbolIndex = new ApiSymbolIndex(state.apiSnapshot);
+    }
+
+    @Benchmark
+    public UsageStore scanClientTypes(CorpusState state) {
+        SpoonApiModelVisitor visitor = new SpoonApiModelVisitor(apiSymbolIndex, state.clientFilter, "client", "CLIENT_ALL", state.corpus.getClientLocation());
+        for (CtType<?> type : state.clientTypes) {
+            type.accept(visitor);
+        }
+        return visitor.getUsageModelCollection();
+    }
+
+    @Benchmark
+    public ApiSymbolIndex indexApi(CorpusState state) {
+        return new ApiSymbolIndex(state.apiSnapshot);
+    }
+}
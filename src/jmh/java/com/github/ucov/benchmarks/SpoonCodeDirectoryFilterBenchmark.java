@@ -0,0 +1,51 @@
+package com.github.ucov.benchmarks;
+
+import com.github.ucov.spoon.SpoonCodeDirectoryFilter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matches every element of the client model (library elements included) against the client directories
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpoonCodeDirectoryFilterBenchmark {
+    /**
+     * Number of client source directories, all but one of them match no element
+     */
+    @Param({"1", "16"})
+    public int paths;
+
+    private List<CtElement> elements;
+    private SpoonCodeDirectoryFilter filter;
+
+    @Setup(Level.Trial)
+    public void setUp(CorpusState state) {
+        elements = state.clientModel.getElements(new TypeFilter<>(CtElement.class));
+
+        ArrayList<Path> filterPaths = new ArrayList<>();
+        for (int i = 1; i < paths; i++) {
+            filterPaths.add(state.corpus.getClientLocation().resolve("module" + i + "/src/main/java"));
+        }
+        filterPaths.add(state.corpus.getClientSourcePath());
+        filter = new SpoonCodeDirectoryFilter(filterPaths, false);
+    }
+
+    @Benchmark
+    public void matches(Blackhole blackhole) {
+        for (CtElement element : elements) {
+            blackhole.consume(filter.matches(element));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.ucov.benchmarks;
+
+import com.github.ucov.spoon.visitors.SpoonFullyQualifiedNameCache;
+import com.github.ucov.spoon.visitors.SpoonFullyQualifiedNameExtractor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import spoon.reflect.code.CtConstructorCall;
+import spoon.reflect.code.CtFieldRead;
+import spoon.reflect.code.CtInvocation;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracts the fully qualified names of the client elements the visitor looks up in the API, directly and
+ * through a name cache as fresh as at the start of a client scan
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpoonFullyQualifiedNameExtractorBenchmark {
+    private List<CtInvocation<?>> invocations;
+    private List<CtFieldRead<?>> fieldReads;
+    private List<CtConstructorCall<?>> constructorCalls;
+    private List<CtMethod<?>> methods;
+    private List<CtTypeReference<?>> typeReferences;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T extends CtElement> List<T> getElements(List<CtType<?>> types, Class<? super T> elementClass) {
+        List<T> elements = new ArrayList<>();
+        for (CtType<?> type : types) {
+            elements.addAll((List) type.getElements(new TypeFilter<>(elementClass)));
+        }
+        return elements;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp(CorpusState state) {
+        invocations = getElements(state.clientTypes, CtInvocation.class);
+        fieldReads = getElements(state.clientTypes, CtFieldRead.class);
+        constructorCalls = getElements(state.clientTypes, CtConstructorCall.class);
+        methods = getElements(state.clientTypes, CtMethod.class);
+        typeReferences = getElements(state.clientTypes, CtTypeReference.class);
+    }
+
+    @Benchmark
+    public void invocations(Blackhole blackhole) {
+        for (CtInvocation<?> invocation : invocations) {
+            blackhole.consume(SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(invocation));
+        }
+    }
+
+    @Benchmark
+    public void fieldReads(Blackhole blackhole) {
+        for (CtFieldRead<?> fieldRead : fieldReads) {
+            blackhole.consume(SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(fieldRead));
+        }
+    }
+
+    @Benchmark
+    public void constructorCalls(Blackhole blackhole) {
+        for (CtConstructorCall<?> constructorCall : constructorCalls) {
+            blackhole.consume(SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(constructorCall));
+        }
+    }
+
+    @Benchmark
+    public void methods(Blackhole blackhole) {
+        for (CtMethod<?> method : methods) {
+            blackhole.consume(SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(method));
+        }
+    }
+
+    @Benchmark
+    public void typeReferences(Blackhole blackhole) {
+        for (CtTypeReference<?> typeReference : typeReferences) {
+            blackhole.consume(SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(typeReference));
+        }
+    }
+
+    @Benchmark
+    public void cachedInvocations(Blackhole blackhole) {
+        SpoonFullyQualifiedNameCache nameCache = new SpoonFullyQualifiedNameCache();
+        for (CtInvocation<?> invocation : invocations) {
+            blackhole.consume(nameCache.getFullyQualifiedName(invocation.getExecutable()));
+        }
+    }
+
+    @Benchmark
+    public void cachedFieldReads(Blackhole blackhole) {
+        SpoonFullyQualifiedNameCache nameCache = new SpoonFullyQualifiedNameCache();
+        for (CtFieldRead<?> fieldRead : fieldReads) {
+            blackhole.consume(nameCache.getFullyQualifiedName(fieldRead.getVariable()));
+        }
+    }
+
+    @Benchmark
+    public void cachedConstructorCalls(Blackhole blackhole) {
+        SpoonFullyQualifiedNameCache nameCache = new SpoonFullyQualifiedNameCache();
+        for (CtConstructorCall<?> constructorCall : constructorCalls) {
+            blackhole.consume(nameCache.getFullyQualifiedName(constructorCall.getExecutable()));
+        }
+    }
+
+    @Benchmark
+    public void cachedTypeReferences(Blackhole blackhole) {
+        SpoonFullyQualifiedNameCache nameCache = new SpoonFullyQualifiedNameCache();
+        for (CtTypeReference<?> typeReference : typeReferences) {
+            blackhole.consume(nameCache.getFullyQualifiedName(typeReference));
+        }
+    }
+}
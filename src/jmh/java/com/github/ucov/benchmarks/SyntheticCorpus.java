@@ -0,0 +1,152 @@
+package com.github.ucov.benchmarks;
+
+import com.github.maracas.roseau.api.model.API;
+import com.github.ucov.CodeType;
+import com.github.ucov.UCovLibraryProject;
+import com.github.ucov.spoon.SpoonLauncherUtilities;
+import spoon.Launcher;
+import spoon.reflect.CtModel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.stream.Stream;
+
+/**
+ * A generated library and a client using every kind of API symbol (types, constructors, static and
+ * virtual methods, fields, inheritance, implementation and overriding), written to a temporary
+ * directory. The sizes are those of the library: the client has one class per library type.
+ */
+public class SyntheticCorpus implements Closeable {
+    private static final int TYPES_PER_PACKAGE = 10;
+
+    private final Path root;
+    private final Path libraryLocation;
+    private final Path clientLocation;
+    private final int types;
+    private final int members;
+
+    public SyntheticCorpus(int types, int members) throws IOException {
+        this.root = Files.createTempDirectory("ucov-jmh");
+        this.libraryLocation = root.resolve("library");
+        this.clientLocation = root.resolve("client");
+        this.types = types;
+        this.members = Math.max(1, members);
+
+        for (int i = 0; i < types; i++) {
+            writeLibraryType(i);
+            writeClientType(i);
+        }
+    }
+
+    public Path getLibraryLocation() {
+        return libraryLocation;
+    }
+
+    public Path getClientLocation() {
+        return clientLocation;
+    }
+
+    public Path getLibrarySourcePath() {
+        return libraryLocation.resolve("src/main/java");
+    }
+
+    public Path getClientSourcePath() {
+        return clientLocation.resolve("src/main/java");
+    }
+
+    private static void write(Path file, String source) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, source, StandardCharsets.UTF_8);
+    }
+
+    private static String getPackage(String prefix, int type) {
+        return prefix + ".p" + (type / TYPES_PER_PACKAGE);
+    }
+
+    private void writeLibraryType(int type) throws IOException {
+        String packageName = getPackage("lib", type);
+        Path packagePath = getLibrarySourcePath().resolve(packageName.replace('.', '/'));
+
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(packageName).append(";\n\n");
+        source.append("public class ApiType").append(type).append(" {\n");
+        for (int m = 0; m < members; m++) {
+            source.append("    public int field").append(m).append(";\n");
+        }
+        source.append("    public ApiType").append(type).append("() {}\n");
+        source.append("    public ApiType").append(type).append("(int value) { this.field0 = value; }\n");
+        source.append("    public static ApiType").append(type).append(" create() { return new ApiType").append(type).append("(); }\n");
+        for (int m = 0; m < members; m++) {
+            source.append("    public int method").append(m).append("(int value) { return value + field").append(m).append("; }\n");
+        }
+        source.append("}\n");
+        write(packagePath.resolve("ApiType" + type + ".java"), source.toString());
+
+        write(packagePath.resolve("ApiListener" + type + ".java"), "package " + packageName + ";\n\n"
+                + "public interface ApiListener" + type + " {\n"
+                + "    void onEvent(String event, int value);\n"
+                + "}\n");
+    }
+
+    private void writeClientType(int type) throws IOException {
+        String packageName = getPackage("client", type);
+        String libraryPackageName = getPackage("lib", type);
+        String apiType = "ApiType" + type;
+        String apiListener = "ApiListener" + type;
+
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(packageName).append(";\n\n");
+        source.append("import ").append(libraryPackageName).append('.').append(apiType).append(";\n");
+        source.append("import ").append(libraryPackageName).append('.').append(apiListener).append(";\n\n");
+        source.append("public class Client").append(type).append(" extends ").append(apiType).append(" implements ").append(apiListener).append(" {\n");
+        source.append("    private final ").append(apiType).append(" delegate = ").append(apiType).append(".create();\n\n");
+        source.append("    @Override\n");
+        source.append("    public int method0(int value) { return super.method0(value) + 1; }\n\n");
+        source.append("    @Override\n");
+        source.append("    public void onEvent(String event, int value) { delegate.field0 = value; }\n\n");
+        source.append("    public int run() {\n");
+        source.append("        ").append(apiType).append(" api = new ").append(apiType).append("(").append(type).append(");\n");
+        source.append("        int sum = api.field0;\n");
+        for (int m = 0; m < members; m++) {
+            source.append("        sum += api.method").append(m).append("(sum) + delegate.field").append(m).append(";\n");
+        }
+        source.append("        return sum;\n");
+        source.append("    }\n");
+        source.append("}\n");
+        write(getClientSourcePath().resolve(packageName.replace('.', '/')).resolve("Client" + type + ".java"), source.toString());
+    }
+
+    public UCovLibraryProject getLibraryProject() {
+        UCovLibraryProject libraryProject = new UCovLibraryProject();
+        libraryProject.addExternalReference(libraryLocation, EnumSet.of(CodeType.MAIN));
+        return libraryProject;
+    }
+
+    public API getApiModel() {
+        return getLibraryProject().getAPIModels();
+    }
+
+    /**
+     * @return The model of the client, with the library sources as context, as analysed for a SUF
+     */
+    public CtModel getClientModel() {
+        Launcher launcher = SpoonLauncherUtilities.getCommonLauncherInstance();
+        launcher.addInputResource(getLibrarySourcePath().toString());
+        launcher.addInputResource(getClientSourcePath().toString());
+        return launcher.buildModel();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
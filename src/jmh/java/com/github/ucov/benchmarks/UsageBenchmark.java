@@ -0,0 +1,66 @@
+package com.github.ucov.benchmarks;
+
+import com.github.maracas.roseau.api.model.SourceLocation;
+import com.github.ucov.models.SymbolKind;
+import com.github.ucov.models.SymbolUse;
+import com.github.ucov.models.Usage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes and sorts SUF-like usages, as done when writing the reports
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UsageBenchmark {
+    @Param({"1000", "100000"})
+    public int usages;
+
+    private List<Usage> usageList;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SymbolKind[] kinds = SymbolKind.values();
+        SymbolUse[] uses = SymbolUse.values();
+        Path projectLocation = Path.of("clients", "client").toAbsolutePath();
+        Random random = new Random(42);
+
+        usageList = new ArrayList<>(usages);
+        for (int i = 0; i < usages; i++) {
+            int type = random.nextInt(Math.max(1, usages / 20));
+            Path file = projectLocation.resolve("src/main/java/client/p" + (type / 10) + "/Client" + type + ".java");
+            usageList.add(new Usage("client", "CLIENT_ALL", "lib.p" + (type / 10) + ".ApiType" + type + ".method" + random.nextInt(20) + "(int)",
+                    kinds[random.nextInt(kinds.length)], uses[random.nextInt(uses.length)],
+                    new SourceLocation(file, random.nextInt(500)), projectLocation));
+        }
+    }
+
+    @Benchmark
+    public void toCSVRowString(Blackhole blackhole) {
+        for (Usage usage : usageList) {
+            blackhole.consume(usage.toCSVRowString());
+        }
+    }
+
+    @Benchmark
+    public List<String> sort() {
+        // As the reports: each usage formatted once, then the rows sorted
+        List<String> sorted = new ArrayList<>(usageList.size());
+        for (Usage usage : usageList) {
+            sorted.add(usage.toCSVRowString());
+        }
+        Collections.sort(sorted);
+        return sorted;
+    }
+}
@@ -3,12 +3,21 @@ package com.github.ucov;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.maracas.roseau.api.SpoonAPIFactory;
 import com.github.maracas.roseau.api.model.API;
+import com.github.ucov.api.ApiSnapshot;
+import com.github.ucov.api.ApiSnapshotIO;
+import com.github.ucov.api.ApiSymbolIndex;
+import com.github.ucov.metrics.MetricsPhase;
+import com.github.ucov.metrics.UCovMetrics;
 import com.github.ucov.models.Project;
 import com.github.ucov.models.ProjectType;
-import com.github.ucov.models.Usage;
+import com.github.ucov.models.UsageStore;
 import com.github.ucov.reports.csv.CSVGenerator;
+import com.github.ucov.server.UCovServer;
 import com.github.ucov.suf.SUFGenerator;
+import com.github.ucov.suf.SUFOptions;
+import com.github.ucov.suf.SUFSession;
 import com.github.ucov.sum.SUMGenerator;
+import com.github.ucov.sum.SUMPatcher;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -19,13 +28,14 @@ import java.util.*;
 
 public class Main {
     public static final Logger UCOV_LOGGER = LogManager.getLogger();
+    public static final String VERSION = "1.0.0.0";
 
     /**
      * Prints version, naming, and copyright information
      */
     private static void printBanner() {
         UCOV_LOGGER.info("UCov - Java Library Usage Coverage Static Source Analyser");
-        UCOV_LOGGER.info("Version 1.0.0.0");
+        UCOV_LOGGER.info("Version " + VERSION);
         UCOV_LOGGER.info("");
     }
 
@@ -39,6 +49,9 @@ public class Main {
                 "<Project ID 1;Project Type 1;Project Directory 1> " +
                 "<Project ID 2;Project Type 2;Project Directory 2> " +
                 "<Project ID 3;Project Type 3;Project Directory 3> ...");
+        UCOV_LOGGER.info("   or: --serve [Port] to run an analysis server on the loopback interface (default port " + UCovServer.DEFAULT_PORT + ")");
+        UCOV_LOGGER.info("Projects may also be listed in bulk: \"@<Manifest File>\" reads one project per line, " +
+                "\"@<Clients Root Directory>\" analyses every client project found under the directory");
 
         UCOV_LOGGER.info("Example: java -jar ucov.jar " +
                 "\"I:\\UCov\\Projects\\bcel.API.json\" " +
@@ -58,7 +71,7 @@ public class Main {
      * @param argument The cli argument to convert
      * @return A project object matching the provided argument
      */
-    private static Project parseProjectCommandLineOption(String argument) {
+    public static Project parseProjectCommandLineOption(String argument) {
         String[] elements = argument.split(";");
         String id = elements[0];
         String type = elements[1];
@@ -70,6 +83,91 @@ public class Main {
         return new Project(id, typeVal, dirVal);
     }
 
+    /**
+     * Converts the project arguments into projects, expanding manifests and client root directories
+     * e.g.: "@I:\UCov\Projects\clients" -> one CLIENT_ALL project per client checked out in that directory
+     *
+     * @param arguments The cli arguments to convert
+     * @return The projects matching the provided arguments
+     * @throws IOException if a manifest or a client root directory cannot be read
+     */
+    private static ArrayList<Project> parseProjectCommandLineOptions(String[] arguments) throws IOException {
+        ArrayList<Project> projects = new ArrayList<>();
+
+        for (String argument : arguments) {
+            if (!argument.startsWith("@")) {
+                projects.add(parseProjectCommandLineOption(argument));
+                continue;
+            }
+
+            Path path = Path.of(argument.substring(1));
+            if (Files.isDirectory(path)) {
+                List<Project> clientProjects = ProjectManifest.discoverClientProjects(path);
+                UCOV_LOGGER.info("Discovered " + clientProjects.size() + " client projects in " + path);
+                projects.addAll(clientProjects);
+            } else {
+                for (String manifestArgument : ProjectManifest.readProjectArguments(path)) {
+                    projects.add(parseProjectCommandLineOption(manifestArgument));
+                }
+            }
+        }
+
+        return projects;
+    }
+
+    /**
+     * @param usageReportOutputPath The path of the combined SUF
+     * @param project               A client project
+     * @param number                The number of the report among those with the same name, 1 for the first one
+     * @return The path of the SUF of that project alone, e.g. bcel.SUF.csv -> bcel.SUF.commons-vfs.CLIENT_ALL.csv,
+     * or bcel.SUF.commons-vfs.CLIENT_ALL.2.csv for the second report of that name
+     */
+    private static Path getClientUsageReportPath(Path usageReportOutputPath, Project project, int number) {
+        String fileName = usageReportOutputPath.getFileName().toString();
+        int extensionIndex = fileName.lastIndexOf('.');
+        String baseName = extensionIndex < 0 ? fileName : fileName.substring(0, extensionIndex);
+        String extension = extensionIndex < 0 ? "" : fileName.substring(extensionIndex);
+        String clientName = (project.id() + "." + project.type()).replaceAll("[^A-Za-z0-9._-]", "_");
+        if (number > 1) {
+            clientName += "." + number;
+        }
+
+        return usageReportOutputPath.resolveSibling(baseName + "." + clientName + extension);
+    }
+
+    /**
+     * Names the SUF of every client project. Ids that only differ by characters replaced in file names (e.g. a/b
+     * and a_b), or by case, would share a report: the later projects get a numbered report instead.
+     *
+     * @param usageReportOutputPath The path of the combined SUF
+     * @param projects              The projects, the library main project is skipped
+     * @return The path of the SUF of each client project alone
+     */
+    private static Map<Project, Path> getClientUsageReportPaths(Path usageReportOutputPath, List<Project> projects) {
+        // Identity, so that a project listed twice does not overwrite its own report
+        Map<Project, Path> clientUsageReportPaths = new IdentityHashMap<>();
+        Set<String> fileNames = new HashSet<>();
+
+        for (Project project : projects) {
+            if (project.type() == ProjectType.LIBRARY_MAIN) {
+                continue;
+            }
+
+            int number = 1;
+            Path clientUsageReportPath = getClientUsageReportPath(usageReportOutputPath, project, number);
+            while (!fileNames.add(clientUsageReportPath.getFileName().toString().toLowerCase(Locale.ROOT))) {
+                clientUsageReportPath = getClientUsageReportPath(usageReportOutputPath, project, ++number);
+            }
+
+            if (number > 1) {
+                UCOV_LOGGER.info("WARNING: The usage report name of " + project + " is already taken, writing it to " + clientUsageReportPath);
+            }
+            clientUsageReportPaths.put(project, clientUsageReportPath);
+        }
+
+        return clientUsageReportPaths;
+    }
+
     /**
      * This method deserializes an existing API JSON on disk
      *
@@ -93,6 +191,113 @@ public class Main {
         return mainProjectApiModel;
     }
 
+    /**
+     * This method loads the binary API snapshot written by a previous run
+     *
+     * @param apiSnapshotPath The path to the existing snapshot
+     * @return The snapshot, or null if it could not be read (e.g. written by another version)
+     */
+    private static ApiSnapshot readApiSnapshot(Path apiSnapshotPath) {
+        UCOV_LOGGER.info("Reading API snapshot...");
+
+        try {
+            return ApiSnapshotIO.read(apiSnapshotPath);
+        } catch (IOException e) {
+            UCOV_LOGGER.info("An error occurred while reading the API snapshot, falling back to the API report.");
+            UCOV_LOGGER.info(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * This method writes the binary API snapshot that later runs load instead of the API JSON
+     *
+     * @param apiSnapshotPath     The path to write the snapshot to
+     * @param mainProjectApiModel The snapshot to write
+     */
+    private static void writeApiSnapshot(Path apiSnapshotPath, ApiSnapshot mainProjectApiModel) {
+        UCOV_LOGGER.info("Writing API snapshot...");
+
+        try {
+            ApiSnapshotIO.write(apiSnapshotPath, mainProjectApiModel);
+        } catch (IOException e) {
+            UCOV_LOGGER.info("An error occurred while writing the API snapshot.");
+            UCOV_LOGGER.info(e.getMessage());
+        }
+    }
+
+    /**
+     * This method writes the metrics collected during the run next to the SUF report
+     * e.g.: bcel.SUF.csv -> bcel.SUF.metrics.json or bcel.SUF.metrics.prom
+     *
+     * @param usageReportOutputPath The path of the SUF report
+     * @param metricsFormat         The format of the metrics, "json" or "prometheus"
+     */
+    private static void writeMetrics(Path usageReportOutputPath, String metricsFormat) {
+        String fileName = usageReportOutputPath.getFileName().toString();
+        int extensionIndex = fileName.lastIndexOf('.');
+        String baseName = extensionIndex < 0 ? fileName : fileName.substring(0, extensionIndex);
+        boolean prometheus = metricsFormat.equals("prometheus");
+        Path metricsPath = usageReportOutputPath.resolveSibling(baseName + (prometheus ? ".metrics.prom" : ".metrics.json"));
+
+        UCOV_LOGGER.info("Writing metrics to " + metricsPath + "...");
+        try {
+            if (prometheus) {
+                UCovMetrics.writePrometheus(metricsPath);
+            } else {
+                UCovMetrics.writeJson(metricsPath);
+            }
+        } catch (IOException e) {
+            UCOV_LOGGER.info("An error occurred while writing the metrics.");
+            UCOV_LOGGER.info(e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the API of the library: from the binary snapshot of a previous run if its API JSON still exists
+     * and is not newer, else from the API JSON, else by extracting it from the library sources (both files
+     * are then written for later runs)
+     *
+     * @param apiReportOutputPath The path of the API JSON report
+     * @param libraryProject      The library, used if the API must be extracted again
+     * @return The API of the library
+     * @throws IOException if the existing API JSON cannot be read
+     */
+    public static ApiSnapshot getApiModel(Path apiReportOutputPath, UCovLibraryProject libraryProject) throws IOException {
+        ApiSnapshot mainProjectApiModel = null;
+
+        // Prefer the binary snapshot of a previous run, as long as the API JSON it was made from is still there
+        // and was not written after it: deleting the JSON forces the API to be extracted again
+        Path apiSnapshotPath = ApiSnapshotIO.getSnapshotPath(apiReportOutputPath);
+        if (Files.exists(apiSnapshotPath) && Files.exists(apiReportOutputPath)
+                && Files.getLastModifiedTime(apiSnapshotPath).compareTo(Files.getLastModifiedTime(apiReportOutputPath)) >= 0) {
+            mainProjectApiModel = readApiSnapshot(apiSnapshotPath);
+        }
+
+        if (mainProjectApiModel == null) {
+            API mainProjectRoseauApiModel = null;
+
+            // Attempt to deserialize the existing API model first if found
+            if (Files.exists(apiReportOutputPath)) {
+                mainProjectRoseauApiModel = readApiModelReport(apiReportOutputPath);
+            }
+
+            // Either no existing API model json existed, or it failed to parse, recreate it
+            // This mainly only saves execution time for generating multiple SUFs if needed
+            // to run multiple times the tool due to command line argument size limitations on some
+            // operating systems.
+            if (mainProjectRoseauApiModel == null) {
+                mainProjectRoseauApiModel = libraryProject.getAPIModels();
+                CSVGenerator.writeApiModelReport(apiReportOutputPath, mainProjectRoseauApiModel);
+            }
+
+            mainProjectApiModel = ApiSnapshot.of(mainProjectRoseauApiModel);
+            writeApiSnapshot(apiSnapshotPath, mainProjectApiModel);
+        }
+
+        return mainProjectApiModel;
+    }
+
     /**
      * Our main program entry point (CLI)
      *
@@ -103,6 +308,17 @@ public class Main {
         // Version, Name, Copyright info
         printBanner();
 
+        // Collect metrics for the whole run, if requested
+        String metricsFormat = UCovSettings.getMetricsFormat();
+        UCovMetrics.setEnabled(metricsFormat != null);
+
+        // Server mode, libraries and clients are then passed with each request
+        if (args.length >= 1 && args[0].equals("--serve")) {
+            int port = args.length >= 2 ? Integer.parseInt(args[1]) : UCovServer.DEFAULT_PORT;
+            new UCovServer(port).start();
+            return;
+        }
+
         // We require an api output location, a sum location, a suf location, and a main project at the very least.
         if (args.length < 4) {
             printUsage();
@@ -119,7 +335,7 @@ public class Main {
         Path apiReportOutputPath = Path.of(apiReportOutputLocation);
         Path sumLocationPath = Path.of(usageModelReportOutputLocation);
         Path usageReportOutputPath = Path.of(usageFootprintReportOutputLocation);
-        ArrayList<Project> projects = new ArrayList<>(Arrays.stream(projectArguments).map(Main::parseProjectCommandLineOption).toList());
+        ArrayList<Project> projects = parseProjectCommandLineOptions(projectArguments);
 
         // Retrieve the main project, if not provided, fail.
         Optional<Project> optionalMainProject = projects.stream().filter(t -> t.type() == ProjectType.LIBRARY_MAIN).findFirst();
@@ -133,34 +349,61 @@ public class Main {
         UCovLibraryProject libraryProject = new UCovLibraryProject();
         libraryProject.addExternalReference(mainProject.location(), EnumSet.of(CodeType.MAIN));
 
-        API mainProjectApiModel = null;
-
-        // Attempt to deserialize the existing API model first if found
-        if (Files.exists(apiReportOutputPath)) {
-            mainProjectApiModel = readApiModelReport(apiReportOutputPath);
+        ApiSnapshot mainProjectApiModel;
+        try (MetricsPhase phase = UCovMetrics.start("apiLoading", null)) {
+            mainProjectApiModel = getApiModel(apiReportOutputPath, libraryProject);
+            phase.add("types", mainProjectApiModel.types().size());
         }
 
-        // Either no existing API model json existed, or it failed to parse, recreate it
-        // This mainly only saves execution time for generating multiple SUFs if needed
-        // to run multiple times the tool due to command line argument size limitations on some
-        // operating systems.
-        if (mainProjectApiModel == null) {
-            mainProjectApiModel = libraryProject.getAPIModels();
-            CSVGenerator.writeApiModelReport(apiReportOutputPath, mainProjectApiModel);
+        // Canonical symbol IDs, shared by the SUM and the SUF
+        ApiSymbolIndex apiSymbolIndex = new ApiSymbolIndex(mainProjectApiModel);
+
+        // An existing SUM is kept, or patched if it describes a previous version of the library
+        Path previousApiReportPath = UCovSettings.getPreviousApiPath();
+        boolean isSumUpToDate = Files.exists(sumLocationPath);
+        if (isSumUpToDate && previousApiReportPath != null && Files.exists(previousApiReportPath)) {
+            ApiSnapshot previousApiModel = ApiSnapshot.of(readApiModelReport(previousApiReportPath));
+            isSumUpToDate = SUMPatcher.apply(sumLocationPath, SUMPatcher.diff(previousApiModel, mainProjectApiModel, mainProject), mainProject, apiSymbolIndex);
         }
 
-        // If the SUM doesn't already exist on disk, create it
-        if (!Files.exists(sumLocationPath)) {
+        // If the SUM doesn't already exist on disk, or could not be patched, create it
+        if (!isSumUpToDate) {
             CSVGenerator.InitializeUsageReport(sumLocationPath);
-            ArrayList<Usage> sum = SUMGenerator.getSUM(mainProjectApiModel, mainProject);
-            CSVGenerator.writeApiUsageReport(sumLocationPath, sum);
+            UsageStore sum;
+            try (MetricsPhase phase = UCovMetrics.start("sumGeneration", null)) {
+                sum = SUMGenerator.getSUM(mainProjectApiModel, mainProject);
+                phase.add("usages", sum.size());
+            }
+            CSVGenerator.writeApiUsageReport(sumLocationPath, sum, apiSymbolIndex);
         }
 
         // If projects other than main were specified, generate a SUF.
         if (projects.stream().anyMatch(t -> t.type() != ProjectType.LIBRARY_MAIN)) {
-            CSVGenerator.InitializeUsageReport(usageReportOutputPath);
-            ArrayList<Usage> usageModels = SUFGenerator.getSUF(mainProjectApiModel, libraryProject, projects);
-            CSVGenerator.writeApiUsageReport(usageReportOutputPath, usageModels);
+            // The API and library state are shared by all clients
+            try (MetricsPhase phase = UCovMetrics.start("sufGeneration", null);
+                 SUFSession session = new SUFSession(apiSymbolIndex, libraryProject, SUFOptions.fromSettings())) {
+                if (UCovSettings.isClientUsageReports()) {
+                    // One SUF per client, a failing client does not prevent the reports of the others
+                    Map<Project, Path> clientUsageReportPaths = getClientUsageReportPaths(usageReportOutputPath, projects);
+                    session.analyse(projects, (project, usageModels) -> {
+                        Path clientUsageReportPath = clientUsageReportPaths.get(project);
+                        try {
+                            CSVGenerator.InitializeUsageReport(clientUsageReportPath);
+                            CSVGenerator.writeApiUsageReport(clientUsageReportPath, usageModels, apiSymbolIndex);
+                        } catch (IOException e) {
+                            UCOV_LOGGER.info("WARNING: Unable to write the usage report of " + project + " to " + clientUsageReportPath);
+                        }
+                    }, true);
+                } else {
+                    CSVGenerator.InitializeUsageReport(usageReportOutputPath);
+                    UsageStore usageModels = SUFGenerator.getSUF(session, projects);
+                    CSVGenerator.writeApiUsageReport(usageReportOutputPath, usageModels, apiSymbolIndex);
+                }
+            }
+        }
+
+        if (metricsFormat != null) {
+            writeMetrics(usageReportOutputPath, metricsFormat);
         }
     }
 }
@@ -0,0 +1,85 @@
+package com.github.ucov;
+
+import com.github.ucov.models.Project;
+import com.github.ucov.models.ProjectType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lists projects in bulk, so that a whole corpus of clients can be analysed in a single run: either from
+ * a manifest file with one "id;TYPE;dir" project per line, or by discovering the client projects checked
+ * out under a root directory.
+ */
+public class ProjectManifest {
+    private static final int MAX_DISCOVERY_DEPTH = 3;
+    private static final String[] PROJECT_MARKERS = {"pom.xml", "build.gradle", "build.gradle.kts", "src"};
+
+    /**
+     * @param manifestPath A manifest file; blank lines and lines starting with # are ignored
+     * @return The project arguments listed in the manifest
+     * @throws IOException if the manifest cannot be read
+     */
+    public static List<String> readProjectArguments(Path manifestPath) throws IOException {
+        List<String> arguments = new ArrayList<>();
+
+        for (String line : Files.readAllLines(manifestPath, StandardCharsets.UTF_8)) {
+            String argument = line.trim();
+            if (!argument.isEmpty() && !argument.startsWith("#")) {
+                arguments.add(argument);
+            }
+        }
+
+        return arguments;
+    }
+
+    private static boolean isProject(Path directory) {
+        for (String marker : PROJECT_MARKERS) {
+            if (Files.exists(directory.resolve(marker))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void discover(Path root, Path directory, int depth, List<Project> projects) throws IOException {
+        List<Path> subDirectories = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            entries.forEach(subDirectories::add);
+        }
+        subDirectories.sort(null);
+
+        for (Path subDirectory : subDirectories) {
+            if (subDirectory.getFileName().toString().startsWith(".")) {
+                continue;
+            }
+
+            if (isProject(subDirectory)) {
+                // e.g. "apache/commons-vfs" for clients checked out as <owner>/<repository>
+                String id = root.relativize(subDirectory).toString().replace('\\', '/');
+                projects.add(new Project(id, ProjectType.CLIENT_ALL, subDirectory));
+            } else if (depth < MAX_DISCOVERY_DEPTH) {
+                discover(root, subDirectory, depth + 1, projects);
+            }
+        }
+    }
+
+    /**
+     * Finds the client projects under a root directory: directories holding a build file or a src
+     * directory, looked up to a few levels deep. Projects are not searched for nested projects.
+     *
+     * @param rootPath The directory the clients are checked out in
+     * @return One CLIENT_ALL project per discovered client, identified by its path relative to the root
+     * @throws IOException if the directories cannot be listed
+     */
+    public static List<Project> discoverClientProjects(Path rootPath) throws IOException {
+        List<Project> projects = new ArrayList<>();
+        discover(rootPath, rootPath, 1, projects);
+        return projects;
+    }
+}
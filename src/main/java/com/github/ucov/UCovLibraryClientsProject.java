@@ -1,30 +1,58 @@
 package com.github.ucov;
 
-import com.github.maracas.roseau.api.model.API;
-import com.github.ucov.models.Usage;
+import com.github.ucov.api.ApiSymbolIndex;
+import com.github.ucov.cache.UsageCache;
+import com.github.ucov.metrics.ClientModelBuildEvent;
+import com.github.ucov.metrics.MetricsPhase;
+import com.github.ucov.metrics.UCovMetrics;
+import com.github.ucov.models.UsageStore;
+import com.github.ucov.spoon.CompilationUnitScanner;
 import com.github.ucov.spoon.SpoonCodeDirectoryFilter;
 import com.github.ucov.spoon.SpoonLauncherUtilities;
 import com.github.ucov.spoon.visitors.SpoonApiModelVisitor;
+import com.github.ucov.spoon.visitors.SpoonFullyQualifiedNameCache;
+import com.github.ucov.spoon.visitors.TopDefinitionResolver;
 import spoon.Launcher;
 import spoon.reflect.CtModel;
+import spoon.reflect.declaration.CtAnnotation;
 import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtModule;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
 import spoon.reflect.visitor.Filter;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.stream.Stream;
 
 public class UCovLibraryClientsProject {
     private final Map<Path, EnumSet<CodeType>> internalReferences = new HashMap<>();
+    private int shardFiles = 0;
 
     public void addInternalReference(Path path, EnumSet<CodeType> codeTypes) {
         internalReferences.put(path, codeTypes);
     }
 
-    private CtModel getInternalReferencesModel(Map<Path, EnumSet<CodeType>> externalReferences) {
+    /**
+     * @param shardFiles The maximum number of client files parsed in one model, 0 to parse all of them at once
+     */
+    public void setShardFiles(int shardFiles) {
+        this.shardFiles = Math.max(0, shardFiles);
+    }
+
+    private CtModel getInternalReferencesModel(Map<Path, EnumSet<CodeType>> externalReferences, String[] libraryClasspath) {
         Launcher launcher = SpoonLauncherUtilities.getCommonLauncherInstance();
 
-        for (Map.Entry<Path, EnumSet<CodeType>> externalReference : externalReferences.entrySet()) {
-            SpoonLauncherUtilities.applyProjectToLauncher(launcher, externalReference.getKey(), externalReference.getValue());
+        if (libraryClasspath != null) {
+            // The library was compiled once for the whole run, resolve against its binaries instead of parsing it again
+            launcher.getEnvironment().setSourceClasspath(libraryClasspath);
+        } else {
+            for (Map.Entry<Path, EnumSet<CodeType>> externalReference : externalReferences.entrySet()) {
+                SpoonLauncherUtilities.applyProjectToLauncher(launcher, externalReference.getKey(), externalReference.getValue());
+            }
         }
 
         for (Map.Entry<Path, EnumSet<CodeType>> internalReference : internalReferences.entrySet()) {
@@ -56,21 +84,308 @@ public class UCovLibraryClientsProject {
         return new SpoonCodeDirectoryFilter(clientReferencesPaths, false);
     }
 
-    public List<Usage> getUsageModels(API api, Map<Path, EnumSet<CodeType>> externalReferences, String projectId, String projectType, Path projectLocation) {
-        // The visitor
-        SpoonApiModelVisitor visitor = new SpoonApiModelVisitor(api, getClientReferencesFilter(), projectId, projectType, projectLocation);
+    private static String getMetricsSubject(String projectId, String projectType) {
+        return projectId + "|" + projectType;
+    }
+
+    private static void addNameCacheStatistics(MetricsPhase phase, SpoonFullyQualifiedNameCache nameCache) {
+        Main.UCOV_LOGGER.info("Name cache: " + nameCache.getHits() + " hits, " + nameCache.getMisses() + " misses");
+        phase.add("nameCacheHits", nameCache.getHits()).add("nameCacheMisses", nameCache.getMisses());
+    }
+
+    private static void commitClientModelBuildEvent(ClientModelBuildEvent event, String projectId, String projectType, long files) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.project = projectId;
+            event.projectType = projectType;
+            event.files = files;
+            event.commit();
+        }
+    }
+
+    /**
+     * Not the real path: symbolic links are kept, as in the project location the usages are relative to
+     * and in the directories of the client filter
+     */
+    private static Path getNormalizedPath(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    private TreeSet<Path> getClientSourceFiles() {
+        TreeSet<Path> files = new TreeSet<>();
+
+        for (Path clientReferencesPath : getClientReferencesPaths()) {
+            if (!Files.isDirectory(clientReferencesPath)) {
+                continue;
+            }
+
+            try (Stream<Path> paths = Files.walk(clientReferencesPath)) {
+                paths.filter(t -> t.toString().endsWith(".java") && Files.isRegularFile(t))
+                        .map(UCovLibraryClientsProject::getNormalizedPath)
+                        .forEach(files::add);
+            } catch (IOException e) {
+                Main.UCOV_LOGGER.info("WARNING: Unable to list the sources of " + clientReferencesPath);
+            }
+        }
+
+        return files;
+    }
+
+    private static void addElement(Map<Path, List<CtElement>> elementsByFile, CtElement element) {
+        File file = element.getPosition().getFile();
+        if (file != null) {
+            elementsByFile.computeIfAbsent(getNormalizedPath(file.toPath()), t -> new ArrayList<>()).add(element);
+        }
+    }
+
+    /**
+     * Besides top-level types, a compilation unit may be a package-info file, whose package annotations are
+     * not part of any type, or a module-info file, whose directives (uses, provides...) refer to types too
+     *
+     * @return The elements declared in each file of the model: top-level types, package annotations, module
+     * annotations and directives
+     */
+    private static Map<Path, List<CtElement>> getElementsByFile(CtModel model) {
+        Map<Path, List<CtElement>> elementsByFile = new HashMap<>();
+
+        for (CtType<?> type : model.getAllTypes()) {
+            addElement(elementsByFile, type);
+        }
+
+        for (CtPackage ctPackage : model.getAllPackages()) {
+            for (CtAnnotation<?> annotation : ctPackage.getAnnotations()) {
+                addElement(elementsByFile, annotation);
+            }
+        }
+
+        // The unnamed module holds every package, only declared modules have a module-info file
+        for (CtModule module : model.getAllModules()) {
+            if (!module.isUnnamedModule()) {
+                module.getAnnotations().forEach(t -> addElement(elementsByFile, t));
+                module.getModuleDirectives().forEach(t -> addElement(elementsByFile, t));
+            }
+        }
+
+        return elementsByFile;
+    }
+
+    /**
+     * The library sources are in the model for resolution only: the client compilation units are the only
+     * ones worth walking
+     *
+     * @return The elements declared in each client file, see getElementsByFile
+     */
+    private static Map<Path, List<CtElement>> getClientElementsByFile(CtModel model, Filter<CtElement> clientFilter) {
+        Map<Path, List<CtElement>> elementsByFile = getElementsByFile(model);
+        elementsByFile.values().removeIf(elements -> !clientFilter.matches(elements.get(0)));
+        return elementsByFile;
+    }
+
+    /**
+     * Splits client files into shards of at most maxFiles files. Files of the same package (directory) are
+     * kept together unless the package alone is larger than a shard.
+     */
+    private static List<List<Path>> getShards(Collection<Path> files, int maxFiles) {
+        Map<Path, List<Path>> filesByPackage = new TreeMap<>();
+        for (Path file : files) {
+            filesByPackage.computeIfAbsent(file.getParent(), t -> new ArrayList<>()).add(file);
+        }
+
+        List<List<Path>> shards = new ArrayList<>();
+        List<Path> shard = new ArrayList<>();
+        for (List<Path> packageFiles : filesByPackage.values()) {
+            if (!shard.isEmpty() && shard.size() + packageFiles.size() > maxFiles) {
+                shards.add(shard);
+                shard = new ArrayList<>();
+            }
+
+            for (Path file : packageFiles) {
+                if (shard.size() == maxFiles) {
+                    shards.add(shard);
+                    shard = new ArrayList<>();
+                }
+                shard.add(file);
+            }
+        }
+        if (!shard.isEmpty()) {
+            shards.add(shard);
+        }
+
+        return shards;
+    }
+
+    private CtModel getShardModel(Map<Path, EnumSet<CodeType>> externalReferences, String[] libraryClasspath, int complianceLevel, List<Path> shard) {
+        Launcher launcher = SpoonLauncherUtilities.getCommonLauncherInstance();
+
+        if (libraryClasspath != null) {
+            launcher.getEnvironment().setSourceClasspath(libraryClasspath);
+        } else {
+            for (Map.Entry<Path, EnumSet<CodeType>> externalReference : externalReferences.entrySet()) {
+                SpoonLauncherUtilities.applyProjectToLauncher(launcher, externalReference.getKey(), externalReference.getValue());
+            }
+        }
+
+        // Only the client files of the shard, other client files are unknown to this model
+        launcher.getEnvironment().setComplianceLevel(complianceLevel);
+        for (Path file : shard) {
+            launcher.addInputResource(file.toString());
+        }
+
+        return launcher.buildModel();
+    }
+
+    /**
+     * Scans the given client files, each with its own visitor. If sharding is enabled, the files are parsed
+     * shard by shard and each model is released before the next one is built, so that the memory used
+     * depends on the shard size instead of the client size.
+     *
+     * @return The usages found in each file, sorted by path; files of a model that could not be built are missing
+     */
+    private SortedMap<Path, UsageStore> getFileUsageModels(ApiSymbolIndex apiSymbolIndex, Map<Path, EnumSet<CodeType>> externalReferences, String[] libraryClasspath, Collection<Path> files, String projectId, String projectType, Path projectLocation) {
+        Filter<CtElement> filter = getClientReferencesFilter();
+        String subject = getMetricsSubject(projectId, projectType);
+
+        List<List<Path>> shards = shardFiles > 0 ? getShards(files, shardFiles) : List.of(new ArrayList<>(files));
+
+        // Same compliance level as a whole client model would get
+        int complianceLevel = 17;
+        if (shardFiles > 0) {
+            for (Path internalReference : internalReferences.keySet()) {
+                complianceLevel = SpoonLauncherUtilities.getProjectSourceComplianceLevel(internalReference);
+            }
+        }
+
+        SortedMap<Path, UsageStore> fileUsageModels = new TreeMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            List<Path> shard = shards.get(i);
+            if (shardFiles > 0) {
+                Main.UCOV_LOGGER.info("Building shard " + (i + 1) + "/" + shards.size() + " (" + shard.size() + " files)...");
+            }
+
+            CtModel model;
+            ClientModelBuildEvent event = new ClientModelBuildEvent();
+            event.begin();
+            try (MetricsPhase phase = UCovMetrics.start("clientModelBuild", subject)) {
+                model = shardFiles > 0
+                        ? getShardModel(externalReferences, libraryClasspath, complianceLevel, shard)
+                        : getInternalReferencesModel(externalReferences, libraryClasspath);
+            } catch (Exception ignored) {
+                Main.UCOV_LOGGER.info("WARNING: Unable to build the model of " + shard.size() + " client files, skipping them");
+                continue;
+            }
+            commitClientModelBuildEvent(event, projectId, projectType, shard.size());
+
+            // Package-info and module-info files of the shard included, like a whole client scan
+            Map<Path, List<CtElement>> elementsByFile = getElementsByFile(model);
+            Map<Path, List<CtElement>> shardElementsByFile = new HashMap<>();
+            for (Path file : shard) {
+                shardElementsByFile.put(file, elementsByFile.getOrDefault(file, List.of()));
+            }
+
+            try (MetricsPhase phase = UCovMetrics.start("clientScan", subject)) {
+                // Names are cached and client hierarchies resolved once per model, API hierarchies once per run
+                SpoonFullyQualifiedNameCache nameCache = new SpoonFullyQualifiedNameCache();
+                TopDefinitionResolver topDefinitionResolver = new TopDefinitionResolver(apiSymbolIndex, nameCache);
+                CompilationUnitScanner scanner = new CompilationUnitScanner(() -> new SpoonApiModelVisitor(apiSymbolIndex, topDefinitionResolver, nameCache, filter, projectId, projectType, projectLocation));
+                fileUsageModels.putAll(scanner.scan(shardElementsByFile));
+                scanner.getStatistics().addTo(phase);
+                addNameCacheStatistics(phase, nameCache);
+            }
+        }
+
+        return fileUsageModels;
+    }
+
+    /**
+     * Same as getUsageModels, but reuses the cached usages of unchanged client files. The model is only
+     * built if at least one file is missing from the cache, and only those files are scanned.
+     */
+    private UsageStore getCachedUsageModels(ApiSymbolIndex apiSymbolIndex, Map<Path, EnumSet<CodeType>> externalReferences, String[] libraryClasspath, UsageCache usageCache, String projectId, String projectType, Path projectLocation) {
+        UsageStore usageModels = new UsageStore(apiSymbolIndex);
+
+        // Client file -> cache key (null if the key could not be computed)
+        Map<Path, String> missedFiles = new TreeMap<>();
+        TreeSet<Path> clientSourceFiles = getClientSourceFiles();
+        try (MetricsPhase phase = UCovMetrics.start("usageCacheLoad", getMetricsSubject(projectId, projectType))) {
+            for (Path file : clientSourceFiles) {
+                try {
+                    String key = usageCache.getKey(file);
+                    if (!usageCache.load(key, file, projectId, projectType, projectLocation, usageModels)) {
+                        missedFiles.put(file, key);
+                    }
+                } catch (IOException e) {
+                    missedFiles.put(file, null);
+                }
+            }
+            phase.add("hits", clientSourceFiles.size() - missedFiles.size()).add("misses", missedFiles.size());
+        }
+
+        Main.UCOV_LOGGER.info("Usage cache: " + (clientSourceFiles.size() - missedFiles.size()) + " hits, " + missedFiles.size() + " misses");
+
+        if (missedFiles.isEmpty()) {
+            return usageModels;
+        }
+
+        SortedMap<Path, UsageStore> fileUsageModels = getFileUsageModels(apiSymbolIndex, externalReferences, libraryClasspath, missedFiles.keySet(), projectId, projectType, projectLocation);
+        for (Map.Entry<Path, UsageStore> fileUsageModel : fileUsageModels.entrySet()) {
+            String key = missedFiles.get(fileUsageModel.getKey());
+            if (key != null) {
+                usageCache.store(key, fileUsageModel.getKey(), fileUsageModel.getValue());
+            }
+            usageModels.addAll(fileUsageModel.getValue());
+        }
+
+        return usageModels;
+    }
+
+    public UsageStore getUsageModels(ApiSymbolIndex apiSymbolIndex, Map<Path, EnumSet<CodeType>> externalReferences, String projectId, String projectType, Path projectLocation) {
+        return getUsageModels(apiSymbolIndex, externalReferences, null, null, projectId, projectType, projectLocation);
+    }
+
+    public UsageStore getUsageModels(ApiSymbolIndex apiSymbolIndex, Map<Path, EnumSet<CodeType>> externalReferences, String[] libraryClasspath, UsageCache usageCache, String projectId, String projectType, Path projectLocation) {
+        if (usageCache != null) {
+            return getCachedUsageModels(apiSymbolIndex, externalReferences, libraryClasspath, usageCache, projectId, projectType, projectLocation);
+        }
+
+        if (shardFiles > 0) {
+            UsageStore usageModels = new UsageStore(apiSymbolIndex);
+            getFileUsageModels(apiSymbolIndex, externalReferences, libraryClasspath, getClientSourceFiles(), projectId, projectType, projectLocation)
+                    .values().forEach(usageModels::addAll);
+            return usageModels;
+        }
+
+        String subject = getMetricsSubject(projectId, projectType);
 
         CtModel model;
-        try {
-            model = getInternalReferencesModel(externalReferences);
+        ClientModelBuildEvent event = new ClientModelBuildEvent();
+        event.begin();
+        try (MetricsPhase phase = UCovMetrics.start("clientModelBuild", subject)) {
+            model = getInternalReferencesModel(externalReferences, libraryClasspath);
         } catch (Exception ignored) {
-            return new ArrayList<>();
+            return new UsageStore(apiSymbolIndex);
         }
+        commitClientModelBuildEvent(event, projectId, projectType, 0);
+
+        Filter<CtElement> filter = getClientReferencesFilter();
+
+        try (MetricsPhase phase = UCovMetrics.start("clientScan", subject)) {
+            // Names are cached and client hierarchies resolved once per model, API hierarchies once per run
+            SpoonFullyQualifiedNameCache nameCache = new SpoonFullyQualifiedNameCache();
+            TopDefinitionResolver topDefinitionResolver = new TopDefinitionResolver(apiSymbolIndex, nameCache);
 
-        // Run through the AST
-        model.getAllModules().forEach(t -> t.accept(visitor));
+            // Only the client compilation units are walked, never the library ones
+            Map<Path, List<CtElement>> clientElementsByFile = getClientElementsByFile(model, filter);
 
-        // Get the usage models
-        return visitor.getUsageModelCollection();
+            // Run through the client ASTs, in path order
+            SpoonApiModelVisitor visitor = new SpoonApiModelVisitor(apiSymbolIndex, topDefinitionResolver, nameCache, filter, projectId, projectType, projectLocation);
+            for (List<CtElement> elements : new TreeMap<>(clientElementsByFile).values()) {
+                elements.forEach(visitor::scan);
+            }
+            visitor.getStatistics().addTo(phase);
+            addNameCacheStatistics(phase, nameCache);
+
+            // Get the usage models
+            return visitor.getUsageModelCollection();
+        }
     }
 }
@@ -2,32 +2,54 @@ package com.github.ucov;
 
 import com.github.maracas.roseau.api.SpoonAPIExtractor;
 import com.github.maracas.roseau.api.model.API;
+import com.github.ucov.metrics.ApiExtractionEvent;
+import com.github.ucov.metrics.MetricsPhase;
+import com.github.ucov.metrics.UCovMetrics;
 import com.github.ucov.spoon.SpoonCodeDirectoryFilter;
 import com.github.ucov.spoon.SpoonLauncherUtilities;
 import spoon.Launcher;
+import spoon.SpoonModelBuilder;
 import spoon.reflect.CtModel;
 import spoon.reflect.declaration.CtElement;
 import spoon.reflect.visitor.Filter;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 public class UCovLibraryProject {
     private final Map<Path, EnumSet<CodeType>> externalReferences = new HashMap<>();
     private API cachedAPI = null;
+    private String[] cachedLibraryClasspath = null;
+    private Path binaryOutputDirectory = null;
+    private boolean libraryCompilationAttempted = false;
+
+    // Library binaries not released yet, deleted on exit
+    private static final Set<Path> BINARY_OUTPUT_DIRECTORIES = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> BINARY_OUTPUT_DIRECTORIES.forEach(UCovLibraryProject::deleteDirectory)));
+    }
 
     public void addExternalReference(Path path, EnumSet<CodeType> codeTypes) {
         externalReferences.put(path, codeTypes);
     }
 
-    private CtModel getExternalReferencesModel() {
+    private Launcher getExternalReferencesLauncher() {
         Launcher launcher = SpoonLauncherUtilities.getCommonLauncherInstance();
 
         for (Map.Entry<Path, EnumSet<CodeType>> externalReference : externalReferences.entrySet()) {
             SpoonLauncherUtilities.applyProjectToLauncher(launcher, externalReference.getKey(), externalReference.getValue());
         }
 
-        return launcher.buildModel();
+        return launcher;
+    }
+
+    private CtModel getExternalReferencesModel() {
+        return getExternalReferencesLauncher().buildModel();
     }
 
     private ArrayList<Path> getExternalReferencePaths() {
@@ -61,9 +83,98 @@ public class UCovLibraryProject {
             Main.UCOV_LOGGER.info("Fetching API models...");
 
             // API model for libraries
-            cachedAPI = new SpoonAPIExtractor().extractAPI(getExternalReferencesModel());
+            CtModel model;
+            try (MetricsPhase phase = UCovMetrics.start("libraryModelBuild", null)) {
+                model = getExternalReferencesModel();
+            }
+            ApiExtractionEvent event = new ApiExtractionEvent();
+            event.begin();
+            try (MetricsPhase phase = UCovMetrics.start("apiExtraction", null)) {
+                cachedAPI = new SpoonAPIExtractor().extractAPI(model);
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.types = cachedAPI.getExportedTypes().count();
+                event.commit();
+            }
         }
 
         return cachedAPI;
     }
+
+    /**
+     * Compiles the library sources once (proceeding on errors, as the classpath is usually incomplete)
+     * so that client models can be resolved against the resulting binaries instead of re-parsing the
+     * library for every client. The binaries are kept until {@link #releaseLibraryClasspath()} is called,
+     * or until exit.
+     * <p>
+     * Clients resolved against the binaries see the library through shadow declarations instead of its
+     * sources, which changes what getExecutableDeclaration and getTopDefinitions return: virtual invocation
+     * and overriding rows (including lambdas) may differ from a source run, and any row may differ for code
+     * using library classes that did not compile.
+     *
+     * @return The classpath holding the library binaries, or null if the library could not be compiled
+     */
+    public synchronized String[] getLibraryClasspath() {
+        if (!libraryCompilationAttempted) {
+            libraryCompilationAttempted = true;
+            Main.UCOV_LOGGER.info("Compiling library binaries...");
+
+            try {
+                binaryOutputDirectory = Files.createTempDirectory("ucov-library-");
+                BINARY_OUTPUT_DIRECTORIES.add(binaryOutputDirectory);
+
+                try (MetricsPhase phase = UCovMetrics.start("libraryCompilation", null)) {
+                    Launcher launcher = getExternalReferencesLauncher();
+                    launcher.getModelBuilder().setBinaryOutputDirectory(binaryOutputDirectory.toFile());
+                    launcher.getModelBuilder().compile(SpoonModelBuilder.InputType.FILES);
+                }
+
+                if (containsClassFiles(binaryOutputDirectory)) {
+                    cachedLibraryClasspath = new String[]{binaryOutputDirectory.toAbsolutePath().toString()};
+                } else {
+                    Main.UCOV_LOGGER.info("WARNING: No library binaries were produced, falling back to parsing the library for every client");
+                }
+            } catch (Exception e) {
+                Main.UCOV_LOGGER.info("WARNING: Unable to compile the library, falling back to parsing the library for every client");
+                Main.UCOV_LOGGER.info(e.getMessage());
+            }
+
+            if (cachedLibraryClasspath == null) {
+                deleteBinaryOutputDirectory();
+            }
+        }
+
+        return cachedLibraryClasspath;
+    }
+
+    private void deleteBinaryOutputDirectory() {
+        if (binaryOutputDirectory != null) {
+            BINARY_OUTPUT_DIRECTORIES.remove(binaryOutputDirectory);
+            deleteDirectory(binaryOutputDirectory);
+            binaryOutputDirectory = null;
+        }
+    }
+
+    /**
+     * Deletes the library binaries, which must not be used anymore. They are compiled again if asked for.
+     */
+    public synchronized void releaseLibraryClasspath() {
+        deleteBinaryOutputDirectory();
+        cachedLibraryClasspath = null;
+        libraryCompilationAttempted = false;
+    }
+
+    private static boolean containsClassFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.anyMatch(t -> t.toString().endsWith(".class"));
+        }
+    }
+
+    private static void deleteDirectory(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(t -> t.toFile().delete());
+        } catch (IOException ignored) {
+        }
+    }
 }
@@ -0,0 +1,119 @@
+package com.github.ucov;
+
+import java.nio.file.Path;
+
+/**
+ * Optional tuning knobs, read from JVM system properties (e.g. -Ducov.workers=8) so the positional
+ * command line stays unchanged.
+ */
+public class UCovSettings {
+    public static final String WORKERS_PROPERTY = "ucov.workers";
+    public static final String WORKER_HEAP_MB_PROPERTY = "ucov.workerHeapMB";
+    public static final String SHARED_LIBRARY_PROPERTY = "ucov.sharedLibrary";
+    public static final String CACHE_DIR_PROPERTY = "ucov.cacheDir";
+    public static final String PREVIOUS_API_PROPERTY = "ucov.previousApi";
+    public static final String SORT_RUN_ROWS_PROPERTY = "ucov.sortRunRows";
+    public static final String BINARY_REPORTS_PROPERTY = "ucov.binaryReports";
+    public static final String SHARD_FILES_PROPERTY = "ucov.shardFiles";
+    public static final String CLIENT_USAGE_REPORTS_PROPERTY = "ucov.clientUsageReports";
+    public static final String METRICS_PROPERTY = "ucov.metrics";
+
+    private static int getIntProperty(String name, int defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            Main.UCOV_LOGGER.info("WARNING: Ignoring invalid value '" + value + "' for " + name);
+            return defaultValue;
+        }
+    }
+
+    private static boolean getBooleanProperty(String name, boolean defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+
+        return Boolean.parseBoolean(value.trim());
+    }
+
+    private static Path getPathProperty(String name) {
+        String value = System.getProperty(name);
+        return value == null || value.isBlank() ? null : Path.of(value.trim());
+    }
+
+    /**
+     * @return The number of client projects analysed concurrently, 1 (sequential) by default
+     */
+    public static int getWorkers() {
+        return Math.max(1, getIntProperty(WORKERS_PROPERTY, 1));
+    }
+
+    /**
+     * @return The heap budget (in MB) a single client analysis is expected to need, 0 if unbounded
+     */
+    public static int getWorkerHeapMB() {
+        return Math.max(0, getIntProperty(WORKER_HEAP_MB_PROPERTY, 0));
+    }
+
+    /**
+     * @return Whether the library is compiled once per run and shared by all client analyses
+     */
+    public static boolean isSharedLibrary() {
+        return getBooleanProperty(SHARED_LIBRARY_PROPERTY, false);
+    }
+
+    /**
+     * @return The directory of the per-file usage cache, or null if caching is disabled
+     */
+    public static Path getCacheDirectory() {
+        return getPathProperty(CACHE_DIR_PROPERTY);
+    }
+
+    /**
+     * @return The API JSON report the existing SUM was generated from, or null if the SUM must not be patched
+     */
+    public static Path getPreviousApiPath() {
+        return getPathProperty(PREVIOUS_API_PROPERTY);
+    }
+
+    /**
+     * @return The maximum number of report rows sorted in memory before being spilled to disk
+     */
+    public static int getSortRunRows() {
+        return Math.max(1, getIntProperty(SORT_RUN_ROWS_PROPERTY, 1_000_000));
+    }
+
+    /**
+     * @return Whether a columnar binary copy of the SUM and SUF CSV reports is written alongside them
+     */
+    public static boolean isBinaryReports() {
+        return getBooleanProperty(BINARY_REPORTS_PROPERTY, false);
+    }
+
+    /**
+     * @return The maximum number of client files parsed in one model, 0 (whole client at once) by default
+     */
+    public static int getShardFiles() {
+        return Math.max(0, getIntProperty(SHARD_FILES_PROPERTY, 0));
+    }
+
+    /**
+     * @return Whether one SUF is written per client project instead of a single combined SUF
+     */
+    public static boolean isClientUsageReports() {
+        return getBooleanProperty(CLIENT_USAGE_REPORTS_PROPERTY, false);
+    }
+
+    /**
+     * @return The format of the metrics report ("json" or "prometheus"), null if no metrics are collected
+     */
+    public static String getMetricsFormat() {
+        String value = System.getProperty(METRICS_PROPERTY);
+        return value == null || value.isBlank() ? null : value.trim().toLowerCase();
+    }
+}
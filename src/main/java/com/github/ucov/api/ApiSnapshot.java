@@ -0,0 +1,62 @@
+package com.github.ucov.api;
+
+import com.github.maracas.roseau.api.model.*;
+import com.github.ucov.RoseauFQNGenertor;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The subset of a Roseau API model SUM and SUF generation rely on: exported types and their members,
+ * with modifiers, locations and precomputed fully qualified names.
+ *
+ * @param types The exported types of the API
+ */
+public record ApiSnapshot(List<TypeSnapshot> types) {
+    /**
+     * @param qualifiedName The fully qualified name of the type
+     * @param isInterface   Whether the type is an interface
+     * @param isClass       Whether the type is a class
+     * @param modifiers     The modifiers of the type
+     * @param location      Where the type is declared
+     * @param constructors  The constructors of the type, if it is a class
+     * @param methods       All methods of the type, including inherited ones
+     * @param fields        All fields of the type, including inherited ones
+     */
+    public record TypeSnapshot(String qualifiedName, boolean isInterface, boolean isClass, Set<Modifier> modifiers,
+                               SourceLocation location, List<MemberSnapshot> constructors,
+                               List<MemberSnapshot> methods, List<MemberSnapshot> fields) {
+    }
+
+    /**
+     * @param fullyQualifiedName The fully qualified name of the member, as found in SUM and SUF reports
+     * @param modifiers          The modifiers of the member
+     * @param location           Where the member is declared
+     */
+    public record MemberSnapshot(String fullyQualifiedName, Set<Modifier> modifiers, SourceLocation location) {
+    }
+
+    public static ApiSnapshot of(API api) {
+        List<TypeSnapshot> types = api.getExportedTypes().map(ApiSnapshot::of).toList();
+        return new ApiSnapshot(types);
+    }
+
+    private static TypeSnapshot of(TypeDecl apiType) {
+        List<MemberSnapshot> constructors = apiType instanceof ClassDecl classDecl
+                ? classDecl.getConstructors().stream()
+                .map(t -> new MemberSnapshot(RoseauFQNGenertor.getFullyQualifiedNameFromRoseauConstructorDecl(t), t.getModifiers(), t.getLocation()))
+                .toList()
+                : List.of();
+
+        List<MemberSnapshot> methods = apiType.getAllMethods()
+                .map(t -> new MemberSnapshot(RoseauFQNGenertor.getFullyQualifiedNameFromRoseauMethodDecl(t), t.getModifiers(), t.getLocation()))
+                .toList();
+
+        List<MemberSnapshot> fields = apiType.getAllFields()
+                .map(t -> new MemberSnapshot(t.getQualifiedName(), t.getModifiers(), t.getLocation()))
+                .toList();
+
+        return new TypeSnapshot(apiType.getQualifiedName(), apiType.isInterface(), apiType.isClass(),
+                apiType.getModifiers(), apiType.getLocation(), constructors, methods, fields);
+    }
+}
@@ -0,0 +1,215 @@
+package com.github.ucov.api;
+
+import com.github.maracas.roseau.api.model.Modifier;
+import com.github.maracas.roseau.api.model.SourceLocation;
+import com.github.ucov.Main;
+import com.github.ucov.api.ApiSnapshot.MemberSnapshot;
+import com.github.ucov.api.ApiSnapshot.TypeSnapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Reads and writes API snapshots as compact binary files, so that later runs can skip the Roseau JSON
+ * deserialization. Strings (names, paths and modifiers) are stored once in a dictionary, and the file
+ * is memory-mapped when read back. Snapshots written by another UCov version are rejected.
+ */
+public class ApiSnapshotIO {
+    private static final int MAGIC = 0x55434153; // "UCAS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int NO_FILE = -1;
+    private static final int FLAG_INTERFACE = 1;
+    private static final int FLAG_CLASS = 2;
+
+    private static final String JSON_EXTENSION = ".json";
+    private static final String SNAPSHOT_EXTENSION = ".bin";
+
+    /**
+     * @param apiReportPath The path of an API JSON report
+     * @return The path of the snapshot stored alongside it
+     */
+    public static Path getSnapshotPath(Path apiReportPath) {
+        String fileName = apiReportPath.getFileName().toString();
+        if (fileName.toLowerCase().endsWith(JSON_EXTENSION)) {
+            fileName = fileName.substring(0, fileName.length() - JSON_EXTENSION.length());
+        }
+
+        return apiReportPath.resolveSibling(fileName + SNAPSHOT_EXTENSION);
+    }
+
+    public static void write(Path snapshotPath, ApiSnapshot snapshot) throws IOException {
+        new Writer().write(snapshotPath, snapshot);
+    }
+
+    public static ApiSnapshot read(Path snapshotPath) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("API snapshot too large to be mapped: " + snapshotPath);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            return new Reader(buffer).read();
+        } catch (RuntimeException e) {
+            // Truncated file, unknown modifier...
+            throw new IOException("Invalid API snapshot: " + snapshotPath, e);
+        }
+    }
+
+    private static class Writer {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        private DataOutputStream body;
+
+        private int encode(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                codes.put(value, code);
+                dictionary.add(value);
+            }
+            return code;
+        }
+
+        void write(Path snapshotPath, ApiSnapshot snapshot) throws IOException {
+            ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+            body = new DataOutputStream(bodyBytes);
+
+            body.writeInt(snapshot.types().size());
+            for (TypeSnapshot type : snapshot.types()) {
+                body.writeInt(encode(type.qualifiedName()));
+                body.writeByte((type.isInterface() ? FLAG_INTERFACE : 0) | (type.isClass() ? FLAG_CLASS : 0));
+                writeModifiers(type.modifiers());
+                writeLocation(type.location());
+                writeMembers(type.constructors());
+                writeMembers(type.methods());
+                writeMembers(type.fields());
+            }
+            body.flush();
+
+            try (DataOutputStream output = new DataOutputStream(Files.newOutputStream(snapshotPath))) {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                writeString(output, Main.VERSION);
+                output.writeInt(dictionary.size());
+                for (String value : dictionary) {
+                    writeString(output, value);
+                }
+                bodyBytes.writeTo(output);
+            }
+        }
+
+        private static void writeString(DataOutputStream output, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+
+        private void writeModifiers(Set<Modifier> modifiers) throws IOException {
+            body.writeByte(modifiers.size());
+            for (Modifier modifier : modifiers) {
+                body.writeInt(encode(modifier.name()));
+            }
+        }
+
+        private void writeLocation(SourceLocation location) throws IOException {
+            if (location == null || location.file() == null) {
+                body.writeInt(NO_FILE);
+            } else {
+                body.writeInt(encode(location.file().toString()));
+            }
+            body.writeInt(location == null ? -1 : location.line());
+        }
+
+        private void writeMembers(List<MemberSnapshot> members) throws IOException {
+            body.writeInt(members.size());
+            for (MemberSnapshot member : members) {
+                body.writeInt(encode(member.fullyQualifiedName()));
+                writeModifiers(member.modifiers());
+                writeLocation(member.location());
+            }
+        }
+    }
+
+    private static class Reader {
+        private final ByteBuffer buffer;
+        private String[] dictionary;
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private String readString() {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        ApiSnapshot read() throws IOException {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a UCov API snapshot");
+            }
+            int formatVersion = buffer.getInt();
+            String version = readString();
+            if (formatVersion != FORMAT_VERSION || !Main.VERSION.equals(version)) {
+                throw new IOException("API snapshot was written by UCov " + version + ", ignoring it");
+            }
+
+            dictionary = new String[buffer.getInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = readString();
+            }
+
+            int typeCount = buffer.getInt();
+            List<TypeSnapshot> types = new ArrayList<>(typeCount);
+            for (int i = 0; i < typeCount; i++) {
+                String qualifiedName = dictionary[buffer.getInt()];
+                int flags = buffer.get();
+                Set<Modifier> modifiers = readModifiers();
+                SourceLocation location = readLocation();
+                List<MemberSnapshot> constructors = readMembers();
+                List<MemberSnapshot> methods = readMembers();
+                List<MemberSnapshot> fields = readMembers();
+
+                types.add(new TypeSnapshot(qualifiedName, (flags & FLAG_INTERFACE) != 0, (flags & FLAG_CLASS) != 0,
+                        modifiers, location, constructors, methods, fields));
+            }
+
+            return new ApiSnapshot(types);
+        }
+
+        private Set<Modifier> readModifiers() {
+            int count = buffer.get();
+            EnumSet<Modifier> modifiers = EnumSet.noneOf(Modifier.class);
+            for (int i = 0; i < count; i++) {
+                modifiers.add(Modifier.valueOf(dictionary[buffer.getInt()]));
+            }
+            return modifiers;
+        }
+
+        private SourceLocation readLocation() {
+            int file = buffer.getInt();
+            int line = buffer.getInt();
+            return new SourceLocation(file == NO_FILE ? null : Path.of(dictionary[file]), line);
+        }
+
+        private List<MemberSnapshot> readMembers() {
+            int count = buffer.getInt();
+            List<MemberSnapshot> members = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                members.add(new MemberSnapshot(dictionary[buffer.getInt()], readModifiers(), readLocation()));
+            }
+            return members;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.github.ucov.api;
+
+import com.github.maracas.roseau.api.model.Modifier;
+import com.github.ucov.api.ApiSnapshot.MemberSnapshot;
+import com.github.ucov.api.ApiSnapshot.TypeSnapshot;
+import com.github.ucov.cache.Hashing;
+import com.github.ucov.models.ApiSymbol;
+import com.github.ucov.models.SymbolKind;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lookup table over the exported symbols of an API snapshot, keyed by fully qualified name.
+ * Built once per API so that visitors don't have to walk every exported type for each AST node.
+ * Each symbol also gets a canonical integer ID, assigned in name order (types, then methods,
+ * constructors and fields), so that reports of the same API can be joined on IDs instead of names, and
+ * usage stores hold IDs instead of names.
+ */
+public class ApiSymbolIndex {
+    private final Map<String, ApiSymbol> types = new HashMap<>();
+    private final Map<String, ApiSymbol> methods = new HashMap<>();
+    private final Map<String, ApiSymbol> constructors = new HashMap<>();
+    private final Map<String, ApiSymbol> fields = new HashMap<>();
+    private final ApiSymbol[] symbols;
+    // Simple name of overridable methods -> bit set of their parameter counts (bit 63 stands for 63 and more)
+    private final Map<String, Long> overridableMethodArities = new HashMap<>();
+    // Method declared in an API type -> API methods among its top definitions, filled as clients are scanned
+    private final Map<String, List<ApiSymbol>> dispatchTable = new ConcurrentHashMap<>();
+
+    public ApiSymbolIndex(ApiSnapshot api) {
+        for (TypeSnapshot apiType : api.types()) {
+            SymbolKind typeKind = apiType.isInterface()
+                    ? SymbolKind.SYMBOL_KIND_INTERFACE
+                    : apiType.isClass() ? SymbolKind.SYMBOL_KIND_CLASS : SymbolKind.SYMBOL_KIND_TYPE;
+            types.putIfAbsent(apiType.qualifiedName(), new ApiSymbol(ApiSymbol.NO_ID, apiType.qualifiedName(), typeKind, apiType.modifiers()));
+
+            for (MemberSnapshot method : apiType.methods()) {
+                methods.putIfAbsent(method.fullyQualifiedName(), new ApiSymbol(ApiSymbol.NO_ID, method.fullyQualifiedName(), SymbolKind.SYMBOL_KIND_METHOD, method.modifiers()));
+                // Static methods are kept: Spoon reports hiding static methods among the top definitions
+                if (!method.modifiers().contains(Modifier.FINAL)) {
+                    addOverridableMethod(method.fullyQualifiedName());
+                }
+            }
+
+            for (MemberSnapshot field : apiType.fields()) {
+                fields.putIfAbsent(field.fullyQualifiedName(), new ApiSymbol(ApiSymbol.NO_ID, field.fullyQualifiedName(), SymbolKind.SYMBOL_KIND_FIELD, field.modifiers()));
+            }
+
+            for (MemberSnapshot constructor : apiType.constructors()) {
+                constructors.putIfAbsent(constructor.fullyQualifiedName(), new ApiSymbol(ApiSymbol.NO_ID, constructor.fullyQualifiedName(), SymbolKind.SYMBOL_KIND_CONSTRUCTOR, constructor.modifiers()));
+            }
+        }
+
+        // Name order rather than snapshot order, so that IDs do not depend on how the API was extracted
+        symbols = new ApiSymbol[types.size() + methods.size() + constructors.size() + fields.size()];
+        int id = 0;
+        for (Map<String, ApiSymbol> table : List.of(types, methods, constructors, fields)) {
+            for (ApiSymbol symbol : new TreeMap<>(table).values()) {
+                ApiSymbol indexedSymbol = symbol.withId(id);
+                table.put(indexedSymbol.fullyQualifiedName(), indexedSymbol);
+                symbols[id++] = indexedSymbol;
+            }
+        }
+    }
+
+    private static long getArityBit(int parameterCount) {
+        return 1L << Math.min(parameterCount, 63);
+    }
+
+    /**
+     * @param fullyQualifiedName A method name such as a.b.C.m(java.util.Map<K,V>,int)
+     */
+    private void addOverridableMethod(String fullyQualifiedName) {
+        int parametersIndex = fullyQualifiedName.indexOf('(');
+        if (parametersIndex < 0) {
+            return;
+        }
+
+        String simpleName = fullyQualifiedName.substring(fullyQualifiedName.lastIndexOf('.', parametersIndex) + 1, parametersIndex);
+
+        // Count the top-level commas, generic arguments may contain some too
+        int parameterCount = 0;
+        int depth = 0;
+        for (int i = parametersIndex + 1; i < fullyQualifiedName.length(); i++) {
+            char c = fullyQualifiedName.charAt(i);
+            if (c == '<') {
+                depth++;
+            } else if (c == '>') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                parameterCount++;
+            } else if (c == ')' && depth == 0) {
+                if (i > parametersIndex + 1) {
+                    parameterCount++;
+                }
+                break;
+            }
+        }
+
+        overridableMethodArities.merge(simpleName, getArityBit(parameterCount), (a, b) -> a | b);
+    }
+
+    /**
+     * Cheap prefilter before walking the hierarchy of a client method: a method can only override an API
+     * method if the API declares a non-final method with the same name and parameter count.
+     *
+     * @param simpleName     The simple name of the client method
+     * @param parameterCount Its number of parameters
+     * @return false if the method cannot override any API method, true if it may
+     */
+    public boolean mayBeOverriddenBy(String simpleName, int parameterCount) {
+        Long arities = overridableMethodArities.get(simpleName);
+        return arities != null && (arities & getArityBit(parameterCount)) != 0;
+    }
+
+    /**
+     * The library hierarchy is fixed for a run, so the top definitions of the methods declared in API
+     * types are the same for every client: they are resolved once and shared through this table.
+     *
+     * @return Method fully qualified name -> API methods among its top definitions
+     */
+    public Map<String, List<ApiSymbol>> getDispatchTable() {
+        return dispatchTable;
+    }
+
+    public int getSymbolCount() {
+        return symbols.length;
+    }
+
+    /**
+     * @param id The canonical ID of a symbol, between 0 and getSymbolCount() - 1
+     * @return The symbol
+     */
+    public ApiSymbol getSymbol(int id) {
+        return symbols[id];
+    }
+
+    /**
+     * @param usageKind          The kind of symbol a usage refers to
+     * @param fullyQualifiedName The fully qualified name the usage refers to
+     * @return The canonical ID of the symbol, ApiSymbol.NO_ID if it is not part of the API
+     */
+    public int getSymbolId(SymbolKind usageKind, String fullyQualifiedName) {
+        Map<String, ApiSymbol> table = switch (usageKind) {
+            case SYMBOL_KIND_TYPE, SYMBOL_KIND_CLASS, SYMBOL_KIND_INTERFACE -> types;
+            case SYMBOL_KIND_METHOD -> methods;
+            case SYMBOL_KIND_CONSTRUCTOR -> constructors;
+            case SYMBOL_KIND_FIELD -> fields;
+        };
+
+        ApiSymbol symbol = table.get(fullyQualifiedName);
+        return symbol != null ? symbol.id() : ApiSymbol.NO_ID;
+    }
+
+    public ApiSymbol getType(String fullyQualifiedName) {
+        return types.get(fullyQualifiedName);
+    }
+
+    public ApiSymbol getMethod(String fullyQualifiedName) {
+        return methods.get(fullyQualifiedName);
+    }
+
+    public ApiSymbol getConstructor(String fullyQualifiedName) {
+        return constructors.get(fullyQualifiedName);
+    }
+
+    public ApiSymbol getField(String fullyQualifiedName) {
+        return fields.get(fullyQualifiedName);
+    }
+
+    public boolean containsType(String fullyQualifiedName) {
+        return types.containsKey(fullyQualifiedName);
+    }
+
+    public boolean containsMethod(String fullyQualifiedName) {
+        return methods.containsKey(fullyQualifiedName);
+    }
+
+    public boolean containsConstructor(String fullyQualifiedName) {
+        return constructors.containsKey(fullyQualifiedName);
+    }
+
+    public boolean containsField(String fullyQualifiedName) {
+        return fields.containsKey(fullyQualifiedName);
+    }
+
+    /**
+     * @return A hash of every indexed symbol (kind, name and modifiers), which changes whenever the API does
+     */
+    public String getFingerprint() {
+        MessageDigest digest = Hashing.getSha256();
+
+        for (Map<String, ApiSymbol> symbols : List.of(types, methods, constructors, fields)) {
+            for (ApiSymbol symbol : new TreeMap<>(symbols).values()) {
+                List<String> modifiers = symbol.modifiers().stream().map(Enum::name).sorted().toList();
+                String entry = symbol.kind() + "|" + symbol.fullyQualifiedName() + "|" + modifiers + "\n";
+                digest.update(entry.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        return Hashing.toHex(digest);
+    }
+}
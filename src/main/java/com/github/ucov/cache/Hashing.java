@@ -0,0 +1,39 @@
+package com.github.ucov.cache;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 hashing, as used by the cache keys, the pom states and the API fingerprint
+ */
+public final class Hashing {
+    private Hashing() {
+    }
+
+    /**
+     * @return A new SHA-256 digest, to be fed with update() and read with toHex()
+     */
+    public static MessageDigest getSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform must support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return The hash of everything the digest was fed with, in lowercase hexadecimal; the digest is reset
+     */
+    public static String toHex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * @return The SHA-256 of the bytes, in lowercase hexadecimal
+     */
+    public static String sha256Hex(byte[] bytes) {
+        return HexFormat.of().formatHex(getSha256().digest(bytes));
+    }
+}
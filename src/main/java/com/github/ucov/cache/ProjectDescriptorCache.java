@@ -0,0 +1,134 @@
+package com.github.ucov.cache;
+
+import com.github.ucov.Main;
+import com.github.ucov.spoon.ProjectDescriptor;
+import com.github.ucov.spoon.ProjectDescriptor.PomState;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * On-disk cache of the project descriptors resolved from Maven poms. Entries are keyed by the project
+ * location and the UCov version, and hold the state of the poms and directories the layout was read
+ * from: whether an entry is still up to date is for the caller to check.
+ */
+public class ProjectDescriptorCache {
+    private static final String VERSION = "version";
+    private static final String COMPLIANCE_LEVEL = "complianceLevel";
+    private static final String MAIN = "main.";
+    private static final String TEST = "test.";
+    private static final String SAMPLE = "sample";
+    private static final String POM = "pom.";
+    private static final String MODIFIED = ".modified";
+    private static final String HASH = ".hash";
+    private static final String LAYOUT_DIRECTORY = "directory.";
+
+    private final Path directory;
+
+    public ProjectDescriptorCache(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    private Path getEntryPath(Path projectLocation) {
+        byte[] location = projectLocation.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8);
+        return directory.resolve(Hashing.sha256Hex(location) + ".properties");
+    }
+
+    private static List<Path> getPaths(Properties properties, String prefix) {
+        List<Path> paths = new ArrayList<>();
+        String path;
+        while ((path = properties.getProperty(prefix + paths.size())) != null) {
+            paths.add(Path.of(path));
+        }
+        return paths;
+    }
+
+    private static void setPaths(Properties properties, String prefix, Collection<Path> paths) {
+        int i = 0;
+        for (Path path : paths) {
+            properties.setProperty(prefix + i++, path.toString());
+        }
+    }
+
+    /**
+     * @param projectLocation The location of the project
+     * @return The cached descriptor of the project, or null if there is none
+     */
+    public ProjectDescriptor load(Path projectLocation) {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(getEntryPath(projectLocation), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | IllegalArgumentException e) {
+            Main.UCOV_LOGGER.info("WARNING: Ignoring unreadable project cache entry for " + projectLocation);
+            return null;
+        }
+
+        try {
+            if (!Main.VERSION.equals(properties.getProperty(VERSION))) {
+                return null;
+            }
+
+            List<PomState> poms = new ArrayList<>();
+            for (Path pom : getPaths(properties, POM)) {
+                String prefix = POM + poms.size();
+                poms.add(new PomState(pom, Long.parseLong(properties.getProperty(prefix + MODIFIED)), properties.getProperty(prefix + HASH)));
+            }
+
+            String sampleRoot = properties.getProperty(SAMPLE);
+            return new ProjectDescriptor(getPaths(properties, MAIN), getPaths(properties, TEST),
+                    sampleRoot == null ? null : Path.of(sampleRoot),
+                    Integer.parseInt(properties.getProperty(COMPLIANCE_LEVEL)), poms,
+                    new TreeSet<>(getPaths(properties, LAYOUT_DIRECTORY)));
+        } catch (RuntimeException e) {
+            Main.UCOV_LOGGER.info("WARNING: Ignoring corrupted project cache entry for " + projectLocation);
+            return null;
+        }
+    }
+
+    /**
+     * Caches the descriptor of a project
+     *
+     * @param projectLocation The location of the project
+     * @param descriptor      The descriptor of the project
+     */
+    public void store(Path projectLocation, ProjectDescriptor descriptor) {
+        Path entryPath = getEntryPath(projectLocation);
+        try {
+            Properties properties = new Properties();
+            properties.setProperty(VERSION, Main.VERSION);
+            properties.setProperty(COMPLIANCE_LEVEL, String.valueOf(descriptor.complianceLevel()));
+            setPaths(properties, MAIN, descriptor.mainRoots());
+            setPaths(properties, TEST, descriptor.testRoots());
+            if (descriptor.sampleRoot() != null) {
+                properties.setProperty(SAMPLE, descriptor.sampleRoot().toString());
+            }
+            setPaths(properties, POM, descriptor.poms().stream().map(PomState::pom).toList());
+            for (int i = 0; i < descriptor.poms().size(); i++) {
+                PomState pom = descriptor.poms().get(i);
+                properties.setProperty(POM + i + MODIFIED, String.valueOf(pom.modified()));
+                properties.setProperty(POM + i + HASH, pom.hash());
+            }
+            setPaths(properties, LAYOUT_DIRECTORY, descriptor.layoutDirectories());
+
+            // Write aside then move, concurrent workers may store the same entry
+            Path temporaryPath = Files.createTempFile(directory, entryPath.getFileName().toString(), ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temporaryPath, StandardCharsets.UTF_8)) {
+                properties.store(writer, "UCov project descriptor of " + projectLocation);
+            }
+            Files.move(temporaryPath, entryPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Main.UCOV_LOGGER.info("WARNING: Unable to write project cache entry for " + projectLocation);
+            Main.UCOV_LOGGER.info(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.github.ucov.cache;
+
+import com.github.maracas.roseau.api.model.SourceLocation;
+import com.github.ucov.Main;
+import com.github.ucov.models.SymbolKind;
+import com.github.ucov.models.SymbolUse;
+import com.github.ucov.models.Usage;
+import com.github.ucov.models.UsageStore;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * On-disk cache of the usages found in a single source file. Entries are keyed by the file contents,
+ * the API fingerprint, the UCov version and cache format and the options that change what is found (see
+ * {@link com.github.ucov.suf.SUFOptions#getResultFingerprint()}), and only hold what does not depend on where the file was
+ * found (symbol, kind, use and line), so they can be reused by any project containing the same file.
+ * The file of a usage is only stored if Spoon reported it under another path than the cached file.
+ */
+public class UsageCache {
+    /**
+     * Part of every key, to be bumped whenever what is found in a file changes without a UCov version change.
+     * 2: package annotations and module directives are scanned, entries of version 1 lack their usages
+     */
+    private static final int FORMAT = 2;
+    private static final String SEPARATOR = "|";
+    private static final String NO_FILE = "-";
+    private static final String SAME_FILE = "+";
+
+    private final Path directory;
+    private final String apiFingerprint;
+    private final String resultFingerprint;
+
+    /**
+     * @param resultFingerprint The options the cached usages depend on
+     */
+    public UsageCache(Path directory, String apiFingerprint, String resultFingerprint) throws IOException {
+        this.directory = directory;
+        this.apiFingerprint = apiFingerprint;
+        this.resultFingerprint = resultFingerprint;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Computes the cache key of a source file
+     *
+     * @param file The source file
+     * @return The key under which the usages of this file are cached
+     * @throws IOException if the file cannot be read
+     */
+    public String getKey(Path file) throws IOException {
+        MessageDigest digest = Hashing.getSha256();
+        digest.update((Main.VERSION + SEPARATOR + FORMAT + SEPARATOR + apiFingerprint + SEPARATOR + resultFingerprint + SEPARATOR).getBytes(StandardCharsets.UTF_8));
+        digest.update(Files.readAllBytes(file));
+
+        return Hashing.toHex(digest);
+    }
+
+    private Path getEntryPath(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + ".csv");
+    }
+
+    /**
+     * Adds the cached usages of a file to a store
+     *
+     * @param key             The cache key of the file
+     * @param file            The file the usages are located in
+     * @param projectId       The project the file belongs to
+     * @param projectType     The type of the project
+     * @param projectLocation The location of the project
+     * @param usageModels     The store to add the usages to
+     * @return false if nothing was cached for this key
+     */
+    public boolean load(String key, Path file, String projectId, String projectType, Path projectLocation, UsageStore usageModels) {
+        List<String> rows;
+        try {
+            rows = Files.readAllLines(getEntryPath(key), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            Main.UCOV_LOGGER.info("WARNING: Ignoring unreadable usage cache entry " + key);
+            return false;
+        }
+
+        List<Usage> usages = new ArrayList<>(rows.size());
+        for (String row : rows) {
+            // The file comes last, it may contain the separator
+            String[] elements = row.split("\\|", 5);
+            if (elements.length != 5) {
+                Main.UCOV_LOGGER.info("WARNING: Ignoring corrupted usage cache entry " + key);
+                return false;
+            }
+
+            SourceLocation position = new SourceLocation(getFile(elements[4], file), Integer.parseInt(elements[3]));
+            usages.add(new Usage(projectId, projectType, elements[0], SymbolKind.valueOf(elements[1]), SymbolUse.valueOf(elements[2]), position, projectLocation));
+        }
+
+        usageModels.addAll(usages);
+        return true;
+    }
+
+    private static Path getFile(String element, Path file) {
+        return switch (element) {
+            case NO_FILE -> null;
+            case SAME_FILE -> file;
+            default -> Path.of(element);
+        };
+    }
+
+    private static String getFileElement(Path usageFile, Path file) {
+        if (usageFile == null) {
+            return NO_FILE;
+        }
+        return usageFile.equals(file) ? SAME_FILE : usageFile.toString();
+    }
+
+    /**
+     * Caches the usages found in a file
+     *
+     * @param key         The cache key of the file
+     * @param file        The file the usages were found in
+     * @param usageModels The usages found in the file
+     */
+    public void store(String key, Path file, UsageStore usageModels) {
+        List<String> rows = new ArrayList<>(usageModels.size());
+        for (Usage usage : usageModels) {
+            SourceLocation position = usage.usagePosition() != null ? usage.usagePosition() : SourceLocation.NO_LOCATION;
+            rows.add(usage.fullyQualifiedName() + SEPARATOR + usage.usageKind() + SEPARATOR + usage.usageType() + SEPARATOR
+                    + position.line() + SEPARATOR + getFileElement(position.file(), file));
+        }
+
+        Path entryPath = getEntryPath(key);
+        try {
+            Files.createDirectories(entryPath.getParent());
+
+            // Write aside then move, concurrent workers may store the same entry
+            Path temporaryPath = Files.createTempFile(entryPath.getParent(), key, ".tmp");
+            Files.write(temporaryPath, rows, StandardCharsets.UTF_8);
+            Files.move(temporaryPath, entryPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Main.UCOV_LOGGER.info("WARNING: Unable to write usage cache entry " + key);
+            Main.UCOV_LOGGER.info(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.ucov.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering the extraction of the library API from its model
+ */
+@Name("com.github.ucov.ApiExtraction")
+@Label("API Extraction")
+@Description("Extraction of the exported API of the library")
+@Category("UCov")
+public class ApiExtractionEvent extends jdk.jfr.Event {
+    @Label("Exported Types")
+    public long types;
+}
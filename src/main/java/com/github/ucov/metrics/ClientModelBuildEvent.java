@@ -0,0 +1,25 @@
+package com.github.ucov.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering the build of a client model (or of one of its shards)
+ */
+@Name("com.github.ucov.ClientModelBuild")
+@Label("Client Model Build")
+@Description("Parsing and resolution of the sources of a client project")
+@Category("UCov")
+public class ClientModelBuildEvent extends jdk.jfr.Event {
+    @Label("Project")
+    public String project;
+
+    @Label("Project Type")
+    public String projectType;
+
+    @Label("Files")
+    @Description("Client source files in the model, 0 if the whole project was built at once")
+    public long files;
+}
@@ -0,0 +1,28 @@
+package com.github.ucov.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering the scan of a top-level type of a client compilation unit
+ */
+@Name("com.github.ucov.CompilationUnitScan")
+@Label("Compilation Unit Scan")
+@Description("Scan of a top-level client type for API usages")
+@Category("UCov")
+public class CompilationUnitScanEvent extends jdk.jfr.Event {
+    @Label("Path")
+    public String path;
+
+    @Label("Type")
+    public String type;
+
+    @Label("Nodes")
+    public long nodes;
+
+    @Label("Usages")
+    @Description("Usages found in the type that were not already found earlier in the scan")
+    public long usages;
+}
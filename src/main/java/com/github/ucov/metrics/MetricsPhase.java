@@ -0,0 +1,55 @@
+package com.github.ucov.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A running phase, measured on the thread that started it until it is closed. Work the phase hands to
+ * other threads is only accounted for in its wall time and counters.
+ */
+public class MetricsPhase implements AutoCloseable {
+    static final MetricsPhase DISABLED = new MetricsPhase(null, null) {
+        @Override
+        public MetricsPhase add(String counter, long value) {
+            return this;
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    private final String phase;
+    private final String subject;
+    private final Map<String, Long> counters = new TreeMap<>();
+    private final long startWallNanos;
+    private final long startCpuNanos;
+    private final long startAllocatedBytes;
+
+    MetricsPhase(String phase, String subject) {
+        this.phase = phase;
+        this.subject = subject;
+        this.startWallNanos = System.nanoTime();
+        this.startCpuNanos = UCovMetrics.getCurrentThreadCpuTime();
+        this.startAllocatedBytes = UCovMetrics.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * @param counter The name of the counter, e.g. files
+     * @param value   The amount to add to it
+     * @return This phase
+     */
+    public MetricsPhase add(String counter, long value) {
+        counters.merge(counter, value, Long::sum);
+        return this;
+    }
+
+    @Override
+    public void close() {
+        UCovMetrics.record(new PhaseMetrics(phase, subject, 1,
+                System.nanoTime() - startWallNanos,
+                UCovMetrics.getCurrentThreadCpuTime() - startCpuNanos,
+                UCovMetrics.getCurrentThreadAllocatedBytes() - startAllocatedBytes,
+                counters));
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.ucov.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * What was measured for a phase of the analysis, summed over all its occurrences
+ *
+ * @param phase          The name of the phase, e.g. clientModelBuild
+ * @param subject        What the phase was run on, e.g. a client project, empty for the whole run
+ * @param count          How many times the phase ran
+ * @param wallNanos      Elapsed time
+ * @param cpuNanos       CPU time of the thread(s) that ran the phase
+ * @param allocatedBytes Bytes allocated by the thread(s) that ran the phase
+ * @param counters       Phase specific counts, e.g. files, nodes, lookups, matches, usages
+ */
+public record PhaseMetrics(String phase, String subject, long count, long wallNanos, long cpuNanos,
+                           long allocatedBytes, Map<String, Long> counters) {
+    PhaseMetrics plus(PhaseMetrics other) {
+        Map<String, Long> sum = new TreeMap<>(counters);
+        other.counters.forEach((counter, value) -> sum.merge(counter, value, Long::sum));
+
+        return new PhaseMetrics(phase, subject, count + other.count, wallNanos + other.wallNanos,
+                cpuNanos + other.cpuNanos, allocatedBytes + other.allocatedBytes, sum);
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.ucov.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event covering the sorting and writing of a usage report
+ */
+@Name("com.github.ucov.ReportWriting")
+@Label("Report Writing")
+@Description("Sorting and writing of a usage report")
+@Category("UCov")
+public class ReportWritingEvent extends jdk.jfr.Event {
+    @Label("Path")
+    public String path;
+
+    @Label("Rows")
+    public long rows;
+}
@@ -0,0 +1,123 @@
+package com.github.ucov.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Collects the wall time, CPU time, allocated bytes and counters of each phase of a run, per subject
+ * (client project, report...), and writes them as JSON or in the Prometheus text format. Collection is
+ * disabled by default, phases are then not measured at all.
+ */
+public class UCovMetrics {
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    private static final Map<List<String>, PhaseMetrics> PHASES = new LinkedHashMap<>();
+    private static volatile boolean enabled = false;
+
+    public static void setEnabled(boolean enabled) {
+        UCovMetrics.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    static long getCurrentThreadCpuTime() {
+        return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0;
+    }
+
+    static long getCurrentThreadAllocatedBytes() {
+        if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean threadMXBean && threadMXBean.isThreadAllocatedMemorySupported()) {
+            return threadMXBean.getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    /**
+     * Starts measuring a phase, to be closed when the phase ends (try-with-resources)
+     *
+     * @param phase   The name of the phase
+     * @param subject What the phase runs on, null for the whole run
+     * @return The running phase
+     */
+    public static MetricsPhase start(String phase, String subject) {
+        return enabled ? new MetricsPhase(phase, subject == null ? "" : subject) : MetricsPhase.DISABLED;
+    }
+
+    static synchronized void record(PhaseMetrics metrics) {
+        PHASES.merge(List.of(metrics.phase(), metrics.subject()), metrics, PhaseMetrics::plus);
+    }
+
+    /**
+     * @return The metrics of each phase and subject, in the order they were first recorded
+     */
+    public static synchronized List<PhaseMetrics> getPhases() {
+        return new ArrayList<>(PHASES.values());
+    }
+
+    public static synchronized void reset() {
+        PHASES.clear();
+    }
+
+    public static void writeJson(Path metricsPath) throws IOException {
+        List<Map<String, Object>> phases = new ArrayList<>();
+        for (PhaseMetrics metrics : getPhases()) {
+            Map<String, Object> phase = new LinkedHashMap<>();
+            phase.put("phase", metrics.phase());
+            phase.put("subject", metrics.subject());
+            phase.put("count", metrics.count());
+            phase.put("wallNanos", metrics.wallNanos());
+            phase.put("cpuNanos", metrics.cpuNanos());
+            phase.put("allocatedBytes", metrics.allocatedBytes());
+            phase.put("counters", metrics.counters());
+            phases.add(phase);
+        }
+
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(metricsPath.toFile(), Map.of("phases", phases));
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String getLabels(PhaseMetrics metrics) {
+        return "phase=\"" + escapeLabel(metrics.phase()) + "\",subject=\"" + escapeLabel(metrics.subject()) + "\"";
+    }
+
+    /**
+     * @return The metrics in the Prometheus text exposition format
+     */
+    public static String toPrometheusText() {
+        List<PhaseMetrics> phases = getPhases();
+        StringBuilder text = new StringBuilder();
+
+        // The samples of a metric must be contiguous
+        text.append("# TYPE ucov_phase_runs counter\n");
+        phases.forEach(t -> text.append("ucov_phase_runs{").append(getLabels(t)).append("} ").append(t.count()).append('\n'));
+        text.append("# TYPE ucov_phase_wall_seconds counter\n");
+        phases.forEach(t -> text.append("ucov_phase_wall_seconds{").append(getLabels(t)).append("} ").append(t.wallNanos() / 1e9).append('\n'));
+        text.append("# TYPE ucov_phase_cpu_seconds counter\n");
+        phases.forEach(t -> text.append("ucov_phase_cpu_seconds{").append(getLabels(t)).append("} ").append(t.cpuNanos() / 1e9).append('\n'));
+        text.append("# TYPE ucov_phase_allocated_bytes counter\n");
+        phases.forEach(t -> text.append("ucov_phase_allocated_bytes{").append(getLabels(t)).append("} ").append(t.allocatedBytes()).append('\n'));
+        text.append("# TYPE ucov_phase_items counter\n");
+        for (PhaseMetrics metrics : phases) {
+            for (Map.Entry<String, Long> counter : metrics.counters().entrySet()) {
+                text.append("ucov_phase_items{").append(getLabels(metrics)).append(",item=\"").append(escapeLabel(counter.getKey())).append("\"} ")
+                        .append(counter.getValue()).append('\n');
+            }
+        }
+
+        return text.toString();
+    }
+
+    public static void writePrometheus(Path metricsPath) throws IOException {
+        Files.writeString(metricsPath, toPrometheusText(), StandardCharsets.UTF_8);
+    }
+}
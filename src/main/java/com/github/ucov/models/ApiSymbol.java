@@ -0,0 +1,25 @@
+package com.github.ucov.models;
+
+import com.github.maracas.roseau.api.model.Modifier;
+
+import java.util.Set;
+
+/**
+ * An exported symbol of the API
+ *
+ * @param id                 Canonical ID of the symbol, stable for a given API: the SUM and SUF of the same API share them
+ * @param fullyQualifiedName The fully qualified name of the symbol, as found in SUM and SUF reports
+ * @param kind               The kind of the symbol
+ * @param modifiers          The modifiers of the symbol
+ */
+public record ApiSymbol(int id, String fullyQualifiedName, SymbolKind kind, Set<Modifier> modifiers) {
+    public static final int NO_ID = -1;
+
+    public ApiSymbol withId(int id) {
+        return new ApiSymbol(id, fullyQualifiedName, kind, modifiers);
+    }
+
+    public boolean hasModifier(Modifier modifier) {
+        return modifiers.contains(modifier);
+    }
+}
@@ -10,18 +10,7 @@ public record Usage(String projectId, String projectType, String fullyQualifiedN
                     Path projectLocation) implements Comparable<Usage> {
 
     public String toCSVRowString() {
-        String SEPARATOR = "|";
-        String filePath = "";
-
-        String projectLocationStr = projectLocation.toAbsolutePath().toString();
-
-        if (usagePosition.file() != null) {
-            String usagePositionStr = usagePosition.file().toString();
-            filePath = usagePositionStr.replaceAll("(?i)" + projectLocationStr, "").replace('\\', '/');
-        }
-
-
-        return projectId + SEPARATOR + projectType + SEPARATOR + projectLocationStr.replace('\\', '/') + SEPARATOR + filePath + "(" + usagePosition.line() + ")" + SEPARATOR + fullyQualifiedName + SEPARATOR + usageKind + SEPARATOR + usageType;
+        return UsageRowFormatter.format(this);
     }
 
     @Override
@@ -39,6 +28,7 @@ public record Usage(String projectId, String projectType, String fullyQualifiedN
 
     @Override
     public int compareTo(Usage o) {
+        // The order of the reports, which sort the formatted rows once instead of formatting on every comparison
         return toCSVRowString().compareTo(o.toCSVRowString());
     }
 }
@@ -27,10 +27,10 @@ public record UsagePosition(String path, int line, int column, int endLine, int
     }
 
     public String getPositionAsString(Path projectLocation) {
-        return path().replaceAll("(?i)" + projectLocation.toAbsolutePath().toString(), "").replace('\\', '/') + "(" + line() + ":" + column() + ")";
+        return UsageRowFormatter.removeIgnoreCase(path(), projectLocation.toAbsolutePath().toString()).replace('\\', '/') + "(" + line() + ":" + column() + ")";
     }
 
     public String getEndPositionAsString(Path projectLocation) {
-        return path().replaceAll("(?i)" + projectLocation.toAbsolutePath().toString(), "").replace('\\', '/') + "(" + endLine() + ":" + endColumn() + ")";
+        return UsageRowFormatter.removeIgnoreCase(path(), projectLocation.toAbsolutePath().toString()).replace('\\', '/') + "(" + endLine() + ":" + endColumn() + ")";
     }
 }
@@ -0,0 +1,90 @@
+package com.github.ucov.models;
+
+import com.github.maracas.roseau.api.model.SourceLocation;
+
+import java.nio.file.Path;
+
+/**
+ * Formats usages as SUM/SUF rows through a per-thread buffer. The usages of a store come grouped by file,
+ * so the path of the last file relative to its project is kept instead of being computed for every row.
+ */
+final class UsageRowFormatter {
+    private static final char SEPARATOR = '|';
+    private static final ThreadLocal<UsageRowFormatter> FORMATTERS = ThreadLocal.withInitial(UsageRowFormatter::new);
+
+    private final StringBuilder row = new StringBuilder(256);
+
+    private Path lastProjectLocation;
+    private String lastProjectLocationString;
+    private String lastProjectLocationRowString;
+    private Path lastFile;
+    private String lastFileRowString;
+
+    private UsageRowFormatter() {
+    }
+
+    /**
+     * @return text without any occurrence of part, compared case-insensitively
+     */
+    static String removeIgnoreCase(String text, String part) {
+        if (part.isEmpty()) {
+            return text;
+        }
+
+        StringBuilder result = null;
+        int start = 0;
+        for (int i = 0; i + part.length() <= text.length(); ) {
+            if (text.regionMatches(true, i, part, 0, part.length())) {
+                if (result == null) {
+                    result = new StringBuilder(text.length());
+                }
+                result.append(text, start, i);
+                i += part.length();
+                start = i;
+            } else {
+                i++;
+            }
+        }
+
+        return result == null ? text : result.append(text, start, text.length()).toString();
+    }
+
+    private void setProjectLocation(Path projectLocation) {
+        if (projectLocation != lastProjectLocation) {
+            lastProjectLocation = projectLocation;
+            lastProjectLocationString = projectLocation.toAbsolutePath().toString();
+            lastProjectLocationRowString = lastProjectLocationString.replace('\\', '/');
+            lastFile = null;
+        }
+    }
+
+    private String getFileRowString(Path file) {
+        if (!file.equals(lastFile)) {
+            lastFile = file;
+            lastFileRowString = removeIgnoreCase(file.toString(), lastProjectLocationString).replace('\\', '/');
+        }
+        return lastFileRowString;
+    }
+
+    static String format(Usage usage) {
+        return FORMATTERS.get().formatRow(usage);
+    }
+
+    private String formatRow(Usage usage) {
+        setProjectLocation(usage.projectLocation());
+        // Usages without a position are rows without a location
+        SourceLocation position = usage.usagePosition() != null ? usage.usagePosition() : SourceLocation.NO_LOCATION;
+        Path file = position.file();
+
+        row.setLength(0);
+        row.append(usage.projectId()).append(SEPARATOR)
+                .append(usage.projectType()).append(SEPARATOR)
+                .append(lastProjectLocationRowString).append(SEPARATOR)
+                .append(file == null ? "" : getFileRowString(file))
+                .append('(').append(position.line()).append(')').append(SEPARATOR)
+                .append(usage.fullyQualifiedName()).append(SEPARATOR)
+                .append(usage.usageKind()).append(SEPARATOR)
+                .append(usage.usageType());
+        return row.toString();
+    }
+}
@@ -0,0 +1,383 @@
+package com.github.ucov.models;
+
+import com.github.maracas.roseau.api.model.SourceLocation;
+import com.github.ucov.api.ApiSymbolIndex;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Set of usages stored column by column: strings and paths are dictionary encoded, kinds, uses and
+ * lines are kept in primitive arrays, and de-duplication goes through an open addressing hash table
+ * of row indices. Adding a usage is O(1), and the memory used grows linearly with the number of rows.
+ * A store given the API index it is filled from keys the symbols of that API on their canonical IDs: usages
+ * added by symbol are stored without hashing their name, and names outside the API go to the dictionary.
+ */
+public class UsageStore implements Iterable<Usage> {
+    private static final SymbolKind[] SYMBOL_KINDS = SymbolKind.values();
+    private static final SymbolUse[] SYMBOL_USES = SymbolUse.values();
+    private static final int NULL_POSITION = -1;
+    private static final int EMPTY_SLOT = -1;
+
+    private final ApiSymbolIndex apiSymbolIndex;
+    // Name codes below are API symbol IDs, the others dictionary codes shifted by the number of symbols
+    private final int symbolCount;
+    private final Dictionary<String> strings = new Dictionary<>();
+    private final Dictionary<Path> paths = new Dictionary<>();
+
+    private int size = 0;
+    private int[] projectIds;
+    private int[] projectTypes;
+    private int[] fullyQualifiedNames;
+    private byte[] usageKinds;
+    private byte[] usageTypes;
+    private int[] files;
+    private int[] lines;
+    private int[] projectLocations;
+
+    // Row index per slot, EMPTY_SLOT if unused; kept at most half full
+    private int[] slots;
+
+    public UsageStore() {
+        this(null, 16);
+    }
+
+    public UsageStore(int initialCapacity) {
+        this(null, initialCapacity);
+    }
+
+    /**
+     * @param apiSymbolIndex The index of the API the usages refer to
+     */
+    public UsageStore(ApiSymbolIndex apiSymbolIndex) {
+        this(apiSymbolIndex, 16);
+    }
+
+    public UsageStore(ApiSymbolIndex apiSymbolIndex, int initialCapacity) {
+        this.apiSymbolIndex = apiSymbolIndex;
+        this.symbolCount = apiSymbolIndex != null ? apiSymbolIndex.getSymbolCount() : 0;
+        int capacity = Math.max(16, initialCapacity);
+        projectIds = new int[capacity];
+        projectTypes = new int[capacity];
+        fullyQualifiedNames = new int[capacity];
+        usageKinds = new byte[capacity];
+        usageTypes = new byte[capacity];
+        files = new int[capacity];
+        lines = new int[capacity];
+        projectLocations = new int[capacity];
+        slots = new int[Integer.highestOneBit(capacity - 1) << 2];
+        Arrays.fill(slots, EMPTY_SLOT);
+    }
+
+    /**
+     * Adds a usage to the store unless an equal usage was already added
+     *
+     * @param usage The usage to add
+     * @return true if the usage was not already in the store
+     */
+    public boolean add(Usage usage) {
+        return add(usage.projectId(), usage.projectType(), usage.fullyQualifiedName(), usage.usageKind(),
+                usage.usageType(), usage.usagePosition(), usage.projectLocation());
+    }
+
+    public boolean add(String projectId, String projectType, String fullyQualifiedName, SymbolKind usageKind,
+                       SymbolUse usageType, SourceLocation usagePosition, Path projectLocation) {
+        return add(projectId, projectType, encodeName(usageKind, fullyQualifiedName), usageKind, usageType, usagePosition, projectLocation);
+    }
+
+    /**
+     * Same as add, for a usage of an API symbol
+     *
+     * @param symbol A symbol of the index of this store, of the kind of table the usage kind refers to
+     */
+    public boolean add(String projectId, String projectType, ApiSymbol symbol, SymbolKind usageKind,
+                       SymbolUse usageType, SourceLocation usagePosition, Path projectLocation) {
+        int fullyQualifiedNameCode = symbol.id() != ApiSymbol.NO_ID && symbol.id() < symbolCount
+                ? symbol.id()
+                : encodeName(usageKind, symbol.fullyQualifiedName());
+        return add(projectId, projectType, fullyQualifiedNameCode, usageKind, usageType, usagePosition, projectLocation);
+    }
+
+    private boolean add(String projectId, String projectType, int fullyQualifiedNameCode, SymbolKind usageKind,
+                        SymbolUse usageType, SourceLocation usagePosition, Path projectLocation) {
+        int fileCode = usagePosition == null ? NULL_POSITION : paths.encode(usagePosition.file());
+        int line = usagePosition == null ? 0 : usagePosition.line();
+        return add(strings.encode(projectId), strings.encode(projectType), fullyQualifiedNameCode,
+                (byte) usageKind.ordinal(), (byte) usageType.ordinal(), fileCode, line, paths.encode(projectLocation));
+    }
+
+    private boolean add(int projectIdCode, int projectTypeCode, int fullyQualifiedNameCode, byte usageKindCode,
+                        byte usageTypeCode, int fileCode, int line, int projectLocationCode) {
+        int hash = hash(projectIdCode, projectTypeCode, fullyQualifiedNameCode, usageKindCode, usageTypeCode, fileCode, line, projectLocationCode);
+        if (find(hash, projectIdCode, projectTypeCode, fullyQualifiedNameCode, usageKindCode, usageTypeCode, fileCode, line, projectLocationCode) != EMPTY_SLOT) {
+            return false;
+        }
+
+        ensureCapacity(size + 1);
+        int row = size++;
+        projectIds[row] = projectIdCode;
+        projectTypes[row] = projectTypeCode;
+        fullyQualifiedNames[row] = fullyQualifiedNameCode;
+        usageKinds[row] = usageKindCode;
+        usageTypes[row] = usageTypeCode;
+        files[row] = fileCode;
+        lines[row] = line;
+        projectLocations[row] = projectLocationCode;
+        insertSlot(row, hash);
+
+        return true;
+    }
+
+    public void addAll(Iterable<Usage> usages) {
+        for (Usage usage : usages) {
+            add(usage);
+        }
+    }
+
+    /**
+     * Adds the usages of another store, re-encoding each of its codes once instead of each of its rows
+     */
+    public void addAll(UsageStore usages) {
+        if (usages.apiSymbolIndex != apiSymbolIndex) {
+            addAll((Iterable<Usage>) usages);
+            return;
+        }
+
+        int[] stringCodes = new int[usages.strings.size()];
+        Arrays.fill(stringCodes, Dictionary.MISSING);
+        int[] pathCodes = new int[usages.paths.size()];
+        Arrays.fill(pathCodes, Dictionary.MISSING);
+
+        ensureCapacity(size + usages.size);
+        for (int row = 0; row < usages.size; row++) {
+            int fullyQualifiedNameCode = usages.fullyQualifiedNames[row];
+            if (fullyQualifiedNameCode >= symbolCount) {
+                fullyQualifiedNameCode = symbolCount + translate(usages.strings, stringCodes, fullyQualifiedNameCode - symbolCount, strings);
+            }
+            int fileCode = usages.files[row] == NULL_POSITION ? NULL_POSITION : translate(usages.paths, pathCodes, usages.files[row], paths);
+
+            add(translate(usages.strings, stringCodes, usages.projectIds[row], strings),
+                    translate(usages.strings, stringCodes, usages.projectTypes[row], strings),
+                    fullyQualifiedNameCode, usages.usageKinds[row], usages.usageTypes[row], fileCode, usages.lines[row],
+                    translate(usages.paths, pathCodes, usages.projectLocations[row], paths));
+        }
+    }
+
+    private static <T> int translate(Dictionary<T> from, int[] codes, int code, Dictionary<T> to) {
+        if (codes[code] == Dictionary.MISSING) {
+            codes[code] = to.encode(from.decode(code));
+        }
+        return codes[code];
+    }
+
+    private int encodeName(SymbolKind usageKind, String fullyQualifiedName) {
+        if (apiSymbolIndex != null) {
+            int id = apiSymbolIndex.getSymbolId(usageKind, fullyQualifiedName);
+            if (id != ApiSymbol.NO_ID) {
+                return id;
+            }
+        }
+        return symbolCount + strings.encode(fullyQualifiedName);
+    }
+
+    private int lookupName(SymbolKind usageKind, String fullyQualifiedName) {
+        if (apiSymbolIndex != null) {
+            int id = apiSymbolIndex.getSymbolId(usageKind, fullyQualifiedName);
+            if (id != ApiSymbol.NO_ID) {
+                return id;
+            }
+        }
+        int code = strings.lookup(fullyQualifiedName);
+        return code == Dictionary.MISSING ? Dictionary.MISSING : symbolCount + code;
+    }
+
+    private String decodeName(int code) {
+        return code < symbolCount ? apiSymbolIndex.getSymbol(code).fullyQualifiedName() : strings.decode(code - symbolCount);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(Usage usage) {
+        SourceLocation usagePosition = usage.usagePosition();
+        int projectIdCode = strings.lookup(usage.projectId());
+        int projectTypeCode = strings.lookup(usage.projectType());
+        int fullyQualifiedNameCode = lookupName(usage.usageKind(), usage.fullyQualifiedName());
+        byte usageKindCode = (byte) usage.usageKind().ordinal();
+        byte usageTypeCode = (byte) usage.usageType().ordinal();
+        int fileCode = usagePosition == null ? NULL_POSITION : paths.lookup(usagePosition.file());
+        int line = usagePosition == null ? 0 : usagePosition.line();
+        int projectLocationCode = paths.lookup(usage.projectLocation());
+
+        if (projectIdCode == Dictionary.MISSING || projectTypeCode == Dictionary.MISSING || fullyQualifiedNameCode == Dictionary.MISSING
+                || (usagePosition != null && fileCode == Dictionary.MISSING) || projectLocationCode == Dictionary.MISSING) {
+            return false;
+        }
+
+        int hash = hash(projectIdCode, projectTypeCode, fullyQualifiedNameCode, usageKindCode, usageTypeCode, fileCode, line, projectLocationCode);
+        return find(hash, projectIdCode, projectTypeCode, fullyQualifiedNameCode, usageKindCode, usageTypeCode, fileCode, line, projectLocationCode) != EMPTY_SLOT;
+    }
+
+    public Usage get(int row) {
+        Objects.checkIndex(row, size);
+        SourceLocation position = files[row] == NULL_POSITION
+                ? null
+                : new SourceLocation(paths.decode(files[row]), lines[row]);
+
+        return new Usage(
+                strings.decode(projectIds[row]),
+                strings.decode(projectTypes[row]),
+                decodeName(fullyQualifiedNames[row]),
+                SYMBOL_KINDS[usageKinds[row]],
+                SYMBOL_USES[usageTypes[row]],
+                position,
+                paths.decode(projectLocations[row])
+        );
+    }
+
+    public Stream<Usage> stream() {
+        return IntStream.range(0, size).mapToObj(this::get);
+    }
+
+    @Override
+    public Iterator<Usage> iterator() {
+        return new Iterator<>() {
+            private int row = 0;
+
+            @Override
+            public boolean hasNext() {
+                return row < size;
+            }
+
+            @Override
+            public Usage next() {
+                if (row >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(row++);
+            }
+        };
+    }
+
+    private int find(int hash, int projectIdCode, int projectTypeCode, int fullyQualifiedNameCode, byte usageKindCode,
+                     byte usageTypeCode, int fileCode, int line, int projectLocationCode) {
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int row = slots[slot];
+            if (row == EMPTY_SLOT) {
+                return EMPTY_SLOT;
+            }
+
+            if (fullyQualifiedNames[row] == fullyQualifiedNameCode && lines[row] == line && files[row] == fileCode
+                    && usageKinds[row] == usageKindCode && usageTypes[row] == usageTypeCode
+                    && projectIds[row] == projectIdCode && projectTypes[row] == projectTypeCode
+                    && projectLocations[row] == projectLocationCode) {
+                return row;
+            }
+        }
+    }
+
+    private int hashOf(int row) {
+        return hash(projectIds[row], projectTypes[row], fullyQualifiedNames[row], usageKinds[row], usageTypes[row],
+                files[row], lines[row], projectLocations[row]);
+    }
+
+    private static int hash(int projectId, int projectType, int fullyQualifiedName, byte usageKind, byte usageType,
+                            int file, int line, int projectLocation) {
+        int h = fullyQualifiedName;
+        h = 31 * h + file;
+        h = 31 * h + line;
+        h = 31 * h + usageKind;
+        h = 31 * h + usageType;
+        h = 31 * h + projectId;
+        h = 31 * h + projectType;
+        h = 31 * h + projectLocation;
+        // Spread the bits, the table is indexed with the lowest ones
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void insertSlot(int row, int hash) {
+        if ((size << 1) > slots.length) {
+            rehash(slots.length << 1);
+            return;
+        }
+
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != EMPTY_SLOT) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = row;
+    }
+
+    private void rehash(int newLength) {
+        slots = new int[newLength];
+        Arrays.fill(slots, EMPTY_SLOT);
+
+        int mask = newLength - 1;
+        for (int row = 0; row < size; row++) {
+            int slot = hashOf(row) & mask;
+            while (slots[slot] != EMPTY_SLOT) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = row;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= projectIds.length) {
+            return;
+        }
+
+        int newCapacity = Math.max(capacity, projectIds.length + (projectIds.length >> 1));
+        projectIds = Arrays.copyOf(projectIds, newCapacity);
+        projectTypes = Arrays.copyOf(projectTypes, newCapacity);
+        fullyQualifiedNames = Arrays.copyOf(fullyQualifiedNames, newCapacity);
+        usageKinds = Arrays.copyOf(usageKinds, newCapacity);
+        usageTypes = Arrays.copyOf(usageTypes, newCapacity);
+        files = Arrays.copyOf(files, newCapacity);
+        lines = Arrays.copyOf(lines, newCapacity);
+        projectLocations = Arrays.copyOf(projectLocations, newCapacity);
+    }
+
+    /**
+     * Assigns a dense integer code to each distinct value, so that every value is stored only once
+     */
+    private static class Dictionary<T> {
+        static final int MISSING = -2;
+
+        private final Map<T, Integer> codes = new HashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+        int encode(T value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        int lookup(T value) {
+            Integer code = codes.get(value);
+            return code == null ? MISSING : code;
+        }
+
+        T decode(int code) {
+            return values.get(code);
+        }
+
+        int size() {
+            return values.size();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.ucov.reports.binary;
+
+import java.nio.file.Path;
+
+/**
+ * Layout of the columnar binary SUM/SUF reports. All integers are big endian.
+ * <pre>
+ * int      MAGIC
+ * int      VERSION
+ * int      row count (n)
+ * int      dictionary size (d)
+ * d times  int length, UTF-8 bytes   -- every distinct string of the report
+ * n ints   project id (dictionary code)
+ * n ints   project type (dictionary code)
+ * n ints   project location (dictionary code)
+ * n ints   file, relative to the project location (dictionary code)
+ * n ints   fully qualified name (dictionary code)
+ * n ints   canonical API symbol ID (see ApiSymbolIndex), -1 if unknown -- same IDs in the SUM and SUF of an API
+ * n bytes  symbol: SymbolKind ordinal &lt;&lt; 4 | SymbolUse ordinal
+ * int      line column length in bytes
+ * ...      line: zigzag varint delta to the line of the previous row
+ * </pre>
+ * Rows are in the same order as in the CSV report.
+ */
+public class BinaryReportFormat {
+    public static final int MAGIC = 0x55434F56; // "UCOV"
+    public static final int VERSION = 2;
+    public static final int INT_COLUMNS = 6;
+
+    private static final String CSV_EXTENSION = ".csv";
+    private static final String BINARY_EXTENSION = ".bin";
+
+    /**
+     * @param csvReportPath The path of a CSV report
+     * @return The path of the binary report written alongside it
+     */
+    public static Path getBinaryReportPath(Path csvReportPath) {
+        String fileName = csvReportPath.getFileName().toString();
+        if (fileName.toLowerCase().endsWith(CSV_EXTENSION)) {
+            fileName = fileName.substring(0, fileName.length() - CSV_EXTENSION.length());
+        }
+
+        return csvReportPath.resolveSibling(fileName + BINARY_EXTENSION);
+    }
+
+    static byte packSymbol(int usageKind, int usageType) {
+        return (byte) ((usageKind << 4) | usageType);
+    }
+
+    static int unpackUsageKind(byte symbol) {
+        return (symbol >> 4) & 0x0F;
+    }
+
+    static int unpackUsageType(byte symbol) {
+        return symbol & 0x0F;
+    }
+}
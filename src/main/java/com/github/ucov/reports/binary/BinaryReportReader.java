@@ -0,0 +1,186 @@
+package com.github.ucov.reports.binary;
+
+import com.github.ucov.models.SymbolKind;
+import com.github.ucov.models.SymbolUse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-maps a binary report written by {@link BinaryReportWriter} and iterates its rows through a
+ * cursor, without materializing Usage objects. Strings are decoded once, when the report is opened.
+ */
+public class BinaryReportReader {
+    private static final SymbolKind[] SYMBOL_KINDS = SymbolKind.values();
+    private static final SymbolUse[] SYMBOL_USES = SymbolUse.values();
+    private static final String SEPARATOR = "|";
+
+    private final ByteBuffer buffer;
+    private final int rowCount;
+    private final String[] dictionary;
+    private final int[] columnOffsets = new int[BinaryReportFormat.INT_COLUMNS];
+    private final int symbolsOffset;
+    private final int linesOffset;
+
+    private BinaryReportReader(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+
+        if (buffer.getInt() != BinaryReportFormat.MAGIC) {
+            throw new IOException("Not a UCov binary report");
+        }
+        int version = buffer.getInt();
+        if (version != BinaryReportFormat.VERSION) {
+            throw new IOException("Unsupported UCov binary report version " + version);
+        }
+
+        rowCount = buffer.getInt();
+        dictionary = new String[buffer.getInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int offset = buffer.position();
+        for (int i = 0; i < columnOffsets.length; i++) {
+            columnOffsets[i] = offset;
+            offset += rowCount * Integer.BYTES;
+        }
+        symbolsOffset = offset;
+        offset += rowCount;
+        linesOffset = offset + Integer.BYTES;
+    }
+
+    public static BinaryReportReader open(Path binaryReportPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(binaryReportPath, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Binary report too large to be mapped: " + binaryReportPath);
+            }
+            return new BinaryReportReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getDictionarySize() {
+        return dictionary.length;
+    }
+
+    public String getString(int code) {
+        return dictionary[code];
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Forward-only view over the rows of the report; accessors describe the current row
+     */
+    public class Cursor {
+        private int row = -1;
+        private int line = 0;
+        private int linePosition = linesOffset;
+
+        public boolean next() {
+            if (row + 1 >= rowCount) {
+                return false;
+            }
+
+            row++;
+            int zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(linePosition++);
+                zigzag |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            line += (zigzag >>> 1) ^ -(zigzag & 1);
+
+            return true;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        private int getCode(int column) {
+            return buffer.getInt(columnOffsets[column] + row * Integer.BYTES);
+        }
+
+        public int getProjectIdCode() {
+            return getCode(0);
+        }
+
+        public int getProjectTypeCode() {
+            return getCode(1);
+        }
+
+        public int getProjectLocationCode() {
+            return getCode(2);
+        }
+
+        public int getFileCode() {
+            return getCode(3);
+        }
+
+        public int getFullyQualifiedNameCode() {
+            return getCode(4);
+        }
+
+        /**
+         * @return The canonical ID of the API symbol of the row, -1 if unknown
+         */
+        public int getSymbolId() {
+            return getCode(5);
+        }
+
+        public String getProjectId() {
+            return dictionary[getProjectIdCode()];
+        }
+
+        public String getProjectType() {
+            return dictionary[getProjectTypeCode()];
+        }
+
+        public String getProjectLocation() {
+            return dictionary[getProjectLocationCode()];
+        }
+
+        public String getFile() {
+            return dictionary[getFileCode()];
+        }
+
+        public String getFullyQualifiedName() {
+            return dictionary[getFullyQualifiedNameCode()];
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public SymbolKind getUsageKind() {
+            return SYMBOL_KINDS[BinaryReportFormat.unpackUsageKind(buffer.get(symbolsOffset + row))];
+        }
+
+        public SymbolUse getUsageType() {
+            return SYMBOL_USES[BinaryReportFormat.unpackUsageType(buffer.get(symbolsOffset + row))];
+        }
+
+        /**
+         * @return The current row as it appears in the CSV report
+         */
+        public String toCSVRowString() {
+            return getProjectId() + SEPARATOR + getProjectType() + SEPARATOR + getProjectLocation() + SEPARATOR
+                    + getFile() + "(" + getLine() + ")" + SEPARATOR + getFullyQualifiedName() + SEPARATOR
+                    + getUsageKind() + SEPARATOR + getUsageType();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.github.ucov.reports.binary;
+
+import com.github.ucov.api.ApiSymbolIndex;
+import com.github.ucov.models.ApiSymbol;
+import com.github.ucov.models.SymbolKind;
+import com.github.ucov.models.SymbolUse;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts a sorted CSV report into the columnar binary format described by {@link BinaryReportFormat}.
+ * The CSV is streamed and every column is spooled to its own temporary file, so only the dictionary
+ * of distinct strings is kept in memory.
+ */
+public class BinaryReportWriter {
+    private static final String SEPARATOR_REGEX = "\\|";
+    private static final int CSV_COLUMNS = 7;
+
+    private final ApiSymbolIndex apiSymbolIndex;
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> dictionary = new ArrayList<>();
+
+    private BinaryReportWriter(ApiSymbolIndex apiSymbolIndex) {
+        this.apiSymbolIndex = apiSymbolIndex;
+    }
+
+    private int encode(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = dictionary.size();
+            codes.put(value, code);
+            dictionary.add(value);
+        }
+        return code;
+    }
+
+    private static void writeVarInt(OutputStream output, int value) throws IOException {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            output.write((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        output.write(zigzag);
+    }
+
+    private static DataOutputStream openColumn(Path path) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+    }
+
+    public static void write(Path csvReportPath, Path binaryReportPath) throws IOException {
+        write(csvReportPath, binaryReportPath, null);
+    }
+
+    /**
+     * @param apiSymbolIndex The API the report refers to, to store canonical symbol IDs; null to leave them unknown
+     */
+    public static void write(Path csvReportPath, Path binaryReportPath, ApiSymbolIndex apiSymbolIndex) throws IOException {
+        new BinaryReportWriter(apiSymbolIndex).convert(csvReportPath, binaryReportPath);
+    }
+
+    private void convert(Path csvReportPath, Path binaryReportPath) throws IOException {
+        Path directory = binaryReportPath.toAbsolutePath().getParent();
+        List<Path> columnPaths = new ArrayList<>();
+        for (int i = 0; i < BinaryReportFormat.INT_COLUMNS + 2; i++) {
+            columnPaths.add(Files.createTempFile(directory, "ucov-column-", ".tmp"));
+        }
+
+        try {
+            int rowCount = 0;
+            List<DataOutputStream> columns = new ArrayList<>();
+            try (BufferedReader reader = Files.newBufferedReader(csvReportPath, StandardCharsets.UTF_8)) {
+                for (Path columnPath : columnPaths) {
+                    columns.add(openColumn(columnPath));
+                }
+                DataOutputStream symbols = columns.get(BinaryReportFormat.INT_COLUMNS);
+                DataOutputStream lines = columns.get(BinaryReportFormat.INT_COLUMNS + 1);
+
+                int previousLine = 0;
+                String row;
+                while ((row = reader.readLine()) != null) {
+                    String[] elements = row.split(SEPARATOR_REGEX, -1);
+                    if (elements.length != CSV_COLUMNS) {
+                        throw new IOException("Malformed report row: " + row);
+                    }
+
+                    // filePath(line)
+                    String position = elements[3];
+                    int lineStart = position.lastIndexOf('(');
+                    if (lineStart < 0 || !position.endsWith(")")) {
+                        throw new IOException("Malformed usage position: " + position);
+                    }
+                    int line = Integer.parseInt(position.substring(lineStart + 1, position.length() - 1));
+
+                    columns.get(0).writeInt(encode(elements[0]));
+                    columns.get(1).writeInt(encode(elements[1]));
+                    columns.get(2).writeInt(encode(elements[2]));
+                    columns.get(3).writeInt(encode(position.substring(0, lineStart)));
+                    SymbolKind usageKind = SymbolKind.valueOf(elements[5]);
+                    columns.get(4).writeInt(encode(elements[4]));
+                    columns.get(5).writeInt(apiSymbolIndex != null ? apiSymbolIndex.getSymbolId(usageKind, elements[4]) : ApiSymbol.NO_ID);
+                    symbols.writeByte(BinaryReportFormat.packSymbol(
+                            usageKind.ordinal(),
+                            SymbolUse.valueOf(elements[6]).ordinal()));
+                    writeVarInt(lines, line - previousLine);
+
+                    previousLine = line;
+                    rowCount++;
+                }
+            } finally {
+                for (DataOutputStream column : columns) {
+                    column.close();
+                }
+            }
+
+            try (DataOutputStream output = openColumn(binaryReportPath)) {
+                output.writeInt(BinaryReportFormat.MAGIC);
+                output.writeInt(BinaryReportFormat.VERSION);
+                output.writeInt(rowCount);
+                output.writeInt(dictionary.size());
+                for (String value : dictionary) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    output.writeInt(bytes.length);
+                    output.write(bytes);
+                }
+
+                for (int i = 0; i <= BinaryReportFormat.INT_COLUMNS; i++) {
+                    Files.copy(columnPaths.get(i), output);
+                }
+
+                Path linesPath = columnPaths.get(BinaryReportFormat.INT_COLUMNS + 1);
+                output.writeInt((int) Files.size(linesPath));
+                Files.copy(linesPath, output);
+            }
+        } finally {
+            for (Path columnPath : columnPaths) {
+                Files.deleteIfExists(columnPath);
+            }
+        }
+    }
+}
@@ -4,19 +4,56 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.github.maracas.roseau.api.model.API;
 import com.github.ucov.Main;
+import com.github.ucov.UCovSettings;
+import com.github.ucov.api.ApiSymbolIndex;
+import com.github.ucov.metrics.MetricsPhase;
+import com.github.ucov.metrics.ReportWritingEvent;
+import com.github.ucov.metrics.UCovMetrics;
 import com.github.ucov.models.Usage;
+import com.github.ucov.models.UsageStore;
+import com.github.ucov.reports.binary.BinaryReportFormat;
+import com.github.ucov.reports.binary.BinaryReportWriter;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
-import java.util.ArrayList;
+import java.util.stream.Stream;
 
 public class CSVGenerator {
-    public static void writeApiUsageReport(Path usageReportOutputPath, ArrayList<Usage> usageModels) {
+    public static void writeApiUsageReport(Path usageReportOutputPath, UsageStore usageModels) {
+        writeApiUsageReport(usageReportOutputPath, usageModels, null);
+    }
+
+    /**
+     * @param apiSymbolIndex The API the usages refer to, binary reports then carry its canonical symbol IDs; may be null
+     */
+    public static void writeApiUsageReport(Path usageReportOutputPath, UsageStore usageModels, ApiSymbolIndex apiSymbolIndex) {
+        writeApiUsageReportRows(usageReportOutputPath, usageModels.stream().map(Usage::toCSVRowString), apiSymbolIndex);
+    }
+
+    public static void writeApiUsageReportRows(Path usageReportOutputPath, Stream<String> rows) {
+        writeApiUsageReportRows(usageReportOutputPath, rows, null);
+    }
+
+    public static void writeApiUsageReportRows(Path usageReportOutputPath, Stream<String> rows, ApiSymbolIndex apiSymbolIndex) {
         Main.UCOV_LOGGER.info("Writing usage report CSV...");
-        try {
-            Files.write(usageReportOutputPath, usageModels.stream().map(Usage::toCSVRowString).sorted().toList(), StandardOpenOption.CREATE);
+        try (MetricsPhase phase = UCovMetrics.start("reportWriting", usageReportOutputPath.getFileName().toString())) {
+            ReportWritingEvent event = new ReportWritingEvent();
+            event.begin();
+            long[] rowCount = {0};
+            new ExternalSortWriter(usageReportOutputPath, UCovSettings.getSortRunRows()).write(rows.peek(t -> rowCount[0]++).iterator());
+            phase.add("rows", rowCount[0]);
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = usageReportOutputPath.toString();
+                event.rows = rowCount[0];
+                event.commit();
+            }
+
+            if (UCovSettings.isBinaryReports()) {
+                Main.UCOV_LOGGER.info("Writing binary usage report...");
+                BinaryReportWriter.write(usageReportOutputPath, BinaryReportFormat.getBinaryReportPath(usageReportOutputPath), apiSymbolIndex);
+            }
         } catch (IOException e) {
             Main.UCOV_LOGGER.info("An error occurred while writing the report.");
             Main.UCOV_LOGGER.info(e.getMessage());
@@ -26,6 +63,7 @@ public class CSVGenerator {
     // Initialize usage report CSV file (empty, new file, header)
     public static void InitializeUsageReport(Path usageReportOutputPath) throws IOException {
         Files.deleteIfExists(usageReportOutputPath);
+        Files.deleteIfExists(BinaryReportFormat.getBinaryReportPath(usageReportOutputPath));
         /*String SEPARATOR = "|";
         String headerStringCsv = "projectId" + SEPARATOR + "projectType" + SEPARATOR + "projectLocation" + SEPARATOR + "usagePosition" + SEPARATOR + "usageEndPosition" + SEPARATOR + "usageFullyQualifiedName" + SEPARATOR + "usageKind" + SEPARATOR + "usageType";
         Files.write(usageReportOutputPath, Arrays.stream(new String[]{headerStringCsv}).toList(), StandardOpenOption.CREATE);*/
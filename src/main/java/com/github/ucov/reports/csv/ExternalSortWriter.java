@@ -0,0 +1,119 @@
+package com.github.ucov.reports.csv;
+
+import com.github.ucov.metrics.MetricsPhase;
+import com.github.ucov.metrics.UCovMetrics;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Writes rows in their natural order with a bounded amount of memory: rows are sorted in runs of at
+ * most maxRunRows, each run is spilled to a temporary file, and the runs are then merged into the
+ * output. The output is the same as writing the fully sorted list with Files.write.
+ */
+public class ExternalSortWriter {
+    private final Path outputPath;
+    private final int maxRunRows;
+
+    public ExternalSortWriter(Path outputPath, int maxRunRows) {
+        this.outputPath = outputPath;
+        this.maxRunRows = Math.max(1, maxRunRows);
+    }
+
+    public void write(Iterator<String> rows) throws IOException {
+        List<Path> runs = new ArrayList<>();
+        try {
+            List<String> run = new ArrayList<>();
+            while (rows.hasNext()) {
+                run.add(rows.next());
+                if (run.size() >= maxRunRows) {
+                    runs.add(spill(run));
+                    run.clear();
+                }
+            }
+
+            // Everything fit in memory, no need to go through the disk
+            if (runs.isEmpty()) {
+                sort(run);
+                writeRows(run.iterator());
+                return;
+            }
+
+            if (!run.isEmpty()) {
+                runs.add(spill(run));
+                run.clear();
+            }
+
+            merge(runs);
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    private void sort(List<String> run) {
+        try (MetricsPhase phase = UCovMetrics.start("reportSorting", outputPath.getFileName().toString())) {
+            run.sort(null);
+            phase.add("rows", run.size());
+        }
+    }
+
+    private Path spill(List<String> run) throws IOException {
+        sort(run);
+
+        Path directory = outputPath.toAbsolutePath().getParent();
+        Path runPath = Files.createTempFile(directory, "ucov-run-", ".tmp");
+        Files.write(runPath, run, StandardCharsets.UTF_8);
+        return runPath;
+    }
+
+    private record RunHead(String row, BufferedReader reader) {
+    }
+
+    private void merge(List<Path> runs) throws IOException {
+        PriorityQueue<RunHead> heads = new PriorityQueue<>(runs.size(), Comparator.comparing(RunHead::row));
+        List<BufferedReader> readers = new ArrayList<>(runs.size());
+
+        try (BufferedWriter writer = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8)) {
+            for (Path run : runs) {
+                BufferedReader reader = Files.newBufferedReader(run, StandardCharsets.UTF_8);
+                readers.add(reader);
+
+                String row = reader.readLine();
+                if (row != null) {
+                    heads.add(new RunHead(row, reader));
+                }
+            }
+
+            while (!heads.isEmpty()) {
+                RunHead head = heads.poll();
+                writer.write(head.row());
+                writer.newLine();
+
+                String row = head.reader().readLine();
+                if (row != null) {
+                    heads.add(new RunHead(row, head.reader()));
+                }
+            }
+        } finally {
+            for (BufferedReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private void writeRows(Iterator<String> rows) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8)) {
+            while (rows.hasNext()) {
+                writer.write(rows.next());
+                writer.newLine();
+            }
+        }
+    }
+}
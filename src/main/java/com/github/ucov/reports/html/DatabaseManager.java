@@ -2,31 +2,82 @@ package com.github.ucov.reports.html;
 
 import com.github.ucov.reports.html.types.*;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.*;
 
+/**
+ * In-memory store of the report data. Besides the rows themselves, it keeps hash indexes for every report
+ * query, so that each query costs O(1) or O(result) instead of a scan of all the rows.
+ */
 public class DatabaseManager {
+    // Rows are stored at the position of their ID
     private final List<API> apiModel = new ArrayList<>();
     private final List<Usage2> usageModel = new ArrayList<>();
     private final List<Compatibility> compatibility = new ArrayList<>();
     private final List<Client> client = new ArrayList<>();
     private final List<StudiedClient> studiedClient = new ArrayList<>();
 
+    // Package -> file path -> first element of the file, in insertion order
+    private final Map<String, Map<String, Integer>> firstElementIdsByPackage = new LinkedHashMap<>();
+    private final Map<String, List<Integer>> elementIdsByFile = new HashMap<>();
+    private final Map<ElementKey, Integer> elementIdsByKey = new HashMap<>();
+    private final Map<String, List<Compatibility>> compatibilitiesByPackage = new LinkedHashMap<>();
+    private final Map<ClientKey, Integer> clientIdsByKey = new HashMap<>();
+    private final Map<UsageCountKey, Integer> usageCounts = new HashMap<>();
+    // Usages of clients that have not been added yet, counted once their client is
+    private final Map<Integer, List<Usage2>> pendingUsagesByClient = new HashMap<>();
+
+    private record ElementKey(String packageName, String className, String name, int line) {
+    }
+
+    private record ClientKey(String clientName, String clientPackage, String clientClass, String clientFunction, int beginLine) {
+    }
+
+    /**
+     * @param context The usage context, or null for usages in any context
+     */
+    private record UsageCountKey(int elementId, String usageType, String clientType, String context) {
+    }
+
     public void addAPIElement(String packageName, String className, String name, String sourcePath, String fileName, int beginLine, int endLine, int beginColumn, int endColumn, String symbol_type, String visibility, String modifier, String compatibilityTest, String compatibilityClient, String compatibilityExample) {
-        apiModel.add(new API(apiModel.size(), packageName, className, name, sourcePath, fileName, beginLine, endLine, beginColumn, endColumn, symbol_type, visibility, modifier, compatibilityTest, compatibilityClient, compatibilityExample));
+        int elementId = apiModel.size();
+        apiModel.add(new API(elementId, packageName, className, name, sourcePath, fileName, beginLine, endLine, beginColumn, endColumn, symbol_type, visibility, modifier, compatibilityTest, compatibilityClient, compatibilityExample));
+
+        firstElementIdsByPackage.computeIfAbsent(packageName, t -> new LinkedHashMap<>()).putIfAbsent(sourcePath, elementId);
+        elementIdsByFile.computeIfAbsent(sourcePath, t -> new ArrayList<>()).add(elementId);
+        elementIdsByKey.putIfAbsent(new ElementKey(packageName, className, name, beginLine), elementId);
     }
 
     public void addUsage(int idElement, int idClient, int beginLine, int endLine, int beginColumn, int endColumn, String usageType, String role, String context) {
-        usageModel.add(new Usage2(usageModel.size(), idElement, idClient, beginLine, endLine, beginColumn, endColumn, usageType, role, context));
+        Usage2 usage = new Usage2(usageModel.size(), idElement, idClient, beginLine, endLine, beginColumn, endColumn, usageType, role, context);
+        usageModel.add(usage);
+
+        if (idClient >= 0 && idClient < client.size()) {
+            countUsage(usage, client.get(idClient).client_type());
+        } else {
+            pendingUsagesByClient.computeIfAbsent(idClient, t -> new ArrayList<>()).add(usage);
+        }
+    }
+
+    private void countUsage(Usage2 usage, String clientType) {
+        usageCounts.merge(new UsageCountKey(usage.element_id(), usage.usage_type(), clientType, usage.context()), 1, Integer::sum);
+        usageCounts.merge(new UsageCountKey(usage.element_id(), usage.usage_type(), clientType, null), 1, Integer::sum);
     }
 
     public void addCompatibility(String packageName, String fileName, int nbFieldTested, int nbFieldHalfTested, int nbFieldNoTested, int nbFieldTotal, int nbMethodTested, int nbMethodHalfTested, int nbMethodNoTested, int nbMethodTotal, int nbTypeTested, int nbTypeHalfTested, int nbTypeNoTested, int nbTypeTotal, int nbConstructorTested, int nbConstructorHalfTested, int nbConstructorNoTested, int nbConstructorTotal) {
-        compatibility.add(new Compatibility(compatibility.size(), packageName, fileName, nbFieldTested, nbFieldHalfTested, nbFieldNoTested, nbFieldTotal, nbMethodTested, nbMethodHalfTested, nbMethodNoTested, nbMethodTotal, nbTypeTested, nbTypeHalfTested, nbTypeNoTested, nbTypeTotal, nbConstructorTested, nbConstructorHalfTested, nbConstructorNoTested, nbConstructorTotal));
+        Compatibility compat = new Compatibility(compatibility.size(), packageName, fileName, nbFieldTested, nbFieldHalfTested, nbFieldNoTested, nbFieldTotal, nbMethodTested, nbMethodHalfTested, nbMethodNoTested, nbMethodTotal, nbTypeTested, nbTypeHalfTested, nbTypeNoTested, nbTypeTotal, nbConstructorTested, nbConstructorHalfTested, nbConstructorNoTested, nbConstructorTotal);
+        compatibility.add(compat);
+        compatibilitiesByPackage.computeIfAbsent(packageName, t -> new ArrayList<>()).add(compat);
     }
 
     public void addClient(String clientType, String clientName, String clientPackage, String clientClass, String clientFunction, String fileName, int beginLine, int endLine, int beginColumn, int endColumn) {
-        client.add(new Client(client.size(), clientType, clientName, clientPackage, clientClass, clientFunction, fileName, beginLine, endLine, beginColumn, endColumn));
+        int clientId = client.size();
+        client.add(new Client(clientId, clientType, clientName, clientPackage, clientClass, clientFunction, fileName, beginLine, endLine, beginColumn, endColumn));
+        clientIdsByKey.putIfAbsent(new ClientKey(clientName, clientPackage, clientClass, clientFunction, beginLine), clientId);
+
+        List<Usage2> pendingUsages = pendingUsagesByClient.remove(clientId);
+        if (pendingUsages != null) {
+            pendingUsages.forEach(t -> countUsage(t, clientType));
+        }
     }
 
     public void addStudiedClient(String studiedClientType, String studiedClientName, int nbElement) {
@@ -34,78 +85,48 @@ public class DatabaseManager {
     }
 
     public int getElementId(String packageName, String className, String name, int line) {
-        for (API api : apiModel) {
-            if (api.package_name().equals(packageName) && api.class_name().equals(className) && api.name().equals(name) && api.begin_line() == line) {
-                return api.element_id();
-            }
-        }
+        return elementIdsByKey.getOrDefault(new ElementKey(packageName, className, name, line), -1);
+    }
 
-        return -1;
+    private ApiElement getApiElement(int elementId) {
+        API api = apiModel.get(elementId);
+        return new ApiElement(api.element_id(),
+                api.package_name(),
+                api.class_name(),
+                api.name(),
+                api.file_path(),
+                api.file_name(),
+                api.begin_line(),
+                api.end_line(),
+                api.begin_column(),
+                api.end_column(),
+                SymbolType.valueOf(api.symbol_type()),
+                Visibility.valueOf(api.visibility()),
+                Modifier.valueOf(api.modifier()),
+                CompatibilityStatus.valueOf(api.compatibilityTest()),
+                CompatibilityStatus.valueOf(api.compatibilityClient()),
+                CompatibilityStatus.valueOf(api.compatibilityExample()));
     }
 
     public List<ApiElement> getFiles(String packageName) {
         List<ApiElement> listApiElement = new ArrayList<>();
 
-        for (API api : apiModel) {
-            if (api.package_name().equals(packageName)) {
-                if (listApiElement.stream().noneMatch(t -> t.packageName.equals(packageName) && t.filePath.equals(api.file_path()))) {
-                    listApiElement.add(new ApiElement(api.element_id(),
-                            api.package_name(),
-                            api.class_name(),
-                            api.name(),
-                            api.file_path(),
-                            api.file_name(),
-                            api.begin_line(),
-                            api.end_line(),
-                            api.begin_column(),
-                            api.end_column(),
-                            SymbolType.valueOf(api.symbol_type()),
-                            Visibility.valueOf(api.visibility()),
-                            Modifier.valueOf(api.modifier()),
-                            CompatibilityStatus.valueOf(api.compatibilityTest()),
-                            CompatibilityStatus.valueOf(api.compatibilityClient()),
-                            CompatibilityStatus.valueOf(api.compatibilityExample())));
-                }
-            }
+        for (int elementId : firstElementIdsByPackage.getOrDefault(packageName, Map.of()).values()) {
+            listApiElement.add(getApiElement(elementId));
         }
 
         return listApiElement;
     }
 
     public List<String> getPackages() {
-        List<String> listPackage = new ArrayList<>();
-
-        for (API api : apiModel) {
-            if (listPackage.stream().noneMatch(t -> t.equals(api.package_name()))) {
-                listPackage.add(api.package_name());
-            }
-        }
-
-        return listPackage;
+        return new ArrayList<>(firstElementIdsByPackage.keySet());
     }
 
     public List<ApiElement> getElements(String sourcePath) {
-
         List<ApiElement> listApiElement = new ArrayList<>();
-        for (API api : apiModel) {
-            if (api.file_path().equals(sourcePath)) {
-                listApiElement.add(new ApiElement(api.element_id(),
-                        api.package_name(),
-                        api.class_name(),
-                        api.name(),
-                        api.file_path(),
-                        api.file_name(),
-                        api.begin_line(),
-                        api.end_line(),
-                        api.begin_column(),
-                        api.end_column(),
-                        SymbolType.valueOf(api.symbol_type()),
-                        Visibility.valueOf(api.visibility()),
-                        Modifier.valueOf(api.modifier()),
-                        CompatibilityStatus.valueOf(api.compatibilityTest()),
-                        CompatibilityStatus.valueOf(api.compatibilityClient()),
-                        CompatibilityStatus.valueOf(api.compatibilityExample())));
-            }
+
+        for (int elementId : elementIdsByFile.getOrDefault(sourcePath, List.of())) {
+            listApiElement.add(getApiElement(elementId));
         }
 
         return listApiElement;
@@ -114,28 +135,26 @@ public class DatabaseManager {
     public List<CompatibilityElement> getCompatibilities(String packageName) {
         List<CompatibilityElement> listCompatibilityElement = new ArrayList<>();
 
-        for (Compatibility compat : compatibility) {
-            if (compat.package_name().equals(packageName)) {
-                listCompatibilityElement.add(new CompatibilityElement(compat.compatibility_id(),
-                        compat.package_name(),
-                        compat.file_name(),
-                        compat.nb_field_tested(),
-                        compat.nb_field_halfTested(),
-                        compat.nb_field_noTested(),
-                        compat.nb_field_total(),
-                        compat.nb_method_tested(),
-                        compat.nb_method_halfTested(),
-                        compat.nb_method_noTested(),
-                        compat.nb_method_total(),
-                        compat.nb_type_tested(),
-                        compat.nb_type_halfTested(),
-                        compat.nb_type_noTested(),
-                        compat.nb_type_total(),
-                        compat.nb_constructor_tested(),
-                        compat.nb_constructor_halfTested(),
-                        compat.nb_constructor_noTested(),
-                        compat.nb_constructor_total()));
-            }
+        for (Compatibility compat : compatibilitiesByPackage.getOrDefault(packageName, List.of())) {
+            listCompatibilityElement.add(new CompatibilityElement(compat.compatibility_id(),
+                    compat.package_name(),
+                    compat.file_name(),
+                    compat.nb_field_tested(),
+                    compat.nb_field_halfTested(),
+                    compat.nb_field_noTested(),
+                    compat.nb_field_total(),
+                    compat.nb_method_tested(),
+                    compat.nb_method_halfTested(),
+                    compat.nb_method_noTested(),
+                    compat.nb_method_total(),
+                    compat.nb_type_tested(),
+                    compat.nb_type_halfTested(),
+                    compat.nb_type_noTested(),
+                    compat.nb_type_total(),
+                    compat.nb_constructor_tested(),
+                    compat.nb_constructor_halfTested(),
+                    compat.nb_constructor_noTested(),
+                    compat.nb_constructor_total()));
         }
 
         return listCompatibilityElement;
@@ -144,7 +163,7 @@ public class DatabaseManager {
     public List<CompatibilityElement> getPackagesCompatibilities() {
         List<CompatibilityElement> listCompatibilityElement = new ArrayList<>();
 
-        for (List<Compatibility> compats : compatibility.stream().collect(Collectors.groupingBy(Compatibility::package_name)).values()) {
+        for (List<Compatibility> compats : compatibilitiesByPackage.values()) {
             int nb_field_tested = 0;
             int nb_field_halfTested = 0;
             int nb_field_noTested = 0;
@@ -213,111 +232,54 @@ public class DatabaseManager {
         return listCompatibilityElement;
     }
 
-    public boolean checkUsage(int elementId, String usageType, ApiType apiType, ClientType clientType) {
-        for (Usage2 usage : usageModel) {
-            if (usage.usage_type().equals(usageType) && usage.element_id() == elementId) {
-                if (apiType == ApiType.TEST && usage.context().equals("CLASS") ||
-                        apiType == ApiType.CLIENT && usage.context().equals("EXTERNAL") ||
-                        apiType == ApiType.SOURCE_CODE) {
-                    for (Client cli : client) {
-                        if (cli.client_id() == usage.client_id()) {
-                            if (cli.client_type().equals(clientType.name())) {
-                                return true;
-                            }
-                            break;
-                        }
-                    }
-                }
-            }
-        }
+    private static String getContext(ApiType apiType) {
+        return switch (apiType) {
+            case TEST -> "CLASS";
+            case CLIENT -> "EXTERNAL";
+            default -> null;
+        };
+    }
 
-        return false;
+    public boolean checkUsage(int elementId, String usageType, ApiType apiType, ClientType clientType) {
+        return countNbUsage(elementId, usageType, apiType, clientType) > 0;
     }
 
     public int countNbUsage(int elementId, String usageType, ApiType apiType, ClientType clientType) {
-        int nbUse = 0;
-
-        for (Usage2 usage : usageModel) {
-            if (usage.usage_type().equals(usageType) && usage.element_id() == elementId) {
-                if (apiType == ApiType.TEST && usage.context().equals("CLASS") ||
-                        apiType == ApiType.CLIENT && usage.context().equals("EXTERNAL") ||
-                        apiType == ApiType.SOURCE_CODE) {
-                    for (Client cli : client) {
-                        if (cli.client_id() == usage.client_id()) {
-                            if (cli.client_type().equals(clientType.name())) {
-                                nbUse++;
-                            }
-                            break;
-                        }
-                    }
-                }
-            }
-        }
-
-        return nbUse;
+        return usageCounts.getOrDefault(new UsageCountKey(elementId, usageType, clientType.name(), getContext(apiType)), 0);
     }
 
     public void updateElementCompatibility(ApiElement element) {
-        API api = null;
-
-        for (API _api : apiModel) {
-            if (_api.element_id() == element.elementId) {
-                api = _api;
-                break;
-            }
+        if (element.elementId < 0 || element.elementId >= apiModel.size()) {
+            return;
         }
 
-        if (api != null) {
-            apiModel.remove(element.elementId);
-            apiModel.add(new API(
-                    api.element_id(),
-                    api.package_name(),
-                    api.class_name(),
-                    api.name(),
-                    api.file_path(),
-                    api.file_name(),
-                    api.begin_line(),
-                    api.end_line(),
-                    api.begin_column(),
-                    api.end_column(),
-                    api.symbol_type(),
-                    api.visibility(),
-                    api.modifier(),
-                    element.compatibilityTest.name(),
-                    element.compatibilityClient.name(),
-                    element.compatibilityExample.name()));
-        }
+        API api = apiModel.get(element.elementId);
+        apiModel.set(element.elementId, new API(
+                api.element_id(),
+                api.package_name(),
+                api.class_name(),
+                api.name(),
+                api.file_path(),
+                api.file_name(),
+                api.begin_line(),
+                api.end_line(),
+                api.begin_column(),
+                api.end_column(),
+                api.symbol_type(),
+                api.visibility(),
+                api.modifier(),
+                element.compatibilityTest.name(),
+                element.compatibilityClient.name(),
+                element.compatibilityExample.name()));
     }
 
     public int getClientId(String clientType, String clientName, String clientPackage, String clientClass, int beginLine, int endLine, int beginColumn, int endColumn, String sourceName, String clientFunction) {
-        int idClient = -1;
-
-        for (Client cli : client) {
-            if (cli.client_name().equals(clientName) &&
-                    cli.client_package().equals(clientPackage) &&
-                    cli.client_class().equals(clientClass) &&
-                    cli.client_function().equals(clientFunction) &&
-                    cli.begin_line() == beginLine) {
-                idClient = cli.client_id();
-                break;
-            }
-        }
-
-        if (idClient == -1) {
-            addClient(clientType, clientName, clientPackage, clientClass, clientFunction, sourceName, beginLine, endLine, beginColumn, endColumn);
-
-            for (Client cli : client) {
-                if (cli.client_name().equals(clientName) &&
-                        cli.client_package().equals(clientPackage) &&
-                        cli.client_class().equals(clientClass) &&
-                        cli.client_function().equals(clientFunction) &&
-                        cli.begin_line() == beginLine) {
-                    idClient = cli.client_id();
-                    break;
-                }
-            }
+        Integer idClient = clientIdsByKey.get(new ClientKey(clientName, clientPackage, clientClass, clientFunction, beginLine));
+        if (idClient != null) {
+            return idClient;
         }
 
-        return idClient;
+        addClient(clientType, clientName, clientPackage, clientClass, clientFunction, sourceName, beginLine, endLine, beginColumn, endColumn);
+        return client.size() - 1;
     }
 }
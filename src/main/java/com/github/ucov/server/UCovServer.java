@@ -0,0 +1,231 @@
+package com.github.ucov.server;
+
+import com.github.ucov.CodeType;
+import com.github.ucov.Main;
+import com.github.ucov.UCovLibraryProject;
+import com.github.ucov.UCovSettings;
+import com.github.ucov.api.ApiSnapshot;
+import com.github.ucov.metrics.UCovMetrics;
+import com.github.ucov.models.Project;
+import com.github.ucov.models.ProjectType;
+import com.github.ucov.models.Usage;
+import com.github.ucov.models.UsageStore;
+import com.github.ucov.reports.csv.ExternalSortWriter;
+import com.github.ucov.suf.SUFOptions;
+import com.github.ucov.suf.SUFSession;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
+/**
+ * Long-running analysis server bound to the loopback interface. Libraries are loaded once and stay
+ * resident (API, library model and binaries, usage cache), so each analysis request only pays for the
+ * parsing and scanning of the client itself.
+ * <p>
+ * Endpoints, parameters are passed in the query string:
+ * <ul>
+ *     <li>POST /libraries?api=&lt;API JSON path&gt;&amp;project=&lt;id;LIBRARY_MAIN;dir&gt; loads a library under its project id</li>
+ *     <li>GET /libraries lists the resident libraries</li>
+ *     <li>DELETE /libraries?library=&lt;id&gt; unloads a library</li>
+ *     <li>POST /suf?library=&lt;id&gt;&amp;project=&lt;id;TYPE;dir&gt; analyses a client and streams its sorted SUF rows</li>
+ *     <li>GET /metrics returns the metrics collected since the start, in the Prometheus text format (ucov.metrics must be set)</li>
+ * </ul>
+ */
+public class UCovServer {
+    public static final int DEFAULT_PORT = 8725;
+
+    /**
+     * A library kept in memory between requests
+     */
+    private record ResidentLibrary(Project mainProject, SUFSession session) {
+    }
+
+    private final Map<String, ResidentLibrary> libraries = new ConcurrentHashMap<>();
+    private final HttpServer server;
+
+    public UCovServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/libraries", exchange -> handle(exchange, this::handleLibraries));
+        server.createContext("/suf", exchange -> handle(exchange, this::handleSUF));
+        server.createContext("/metrics", exchange -> handle(exchange, this::handleMetrics));
+        // Concurrent requests are analysed in parallel, up to the number of workers the heap can hold
+        server.setExecutor(Executors.newFixedThreadPool(SUFSession.getEffectiveWorkers(UCovSettings.getWorkers(), UCovSettings.getWorkerHeapMB())));
+    }
+
+    public void start() {
+        server.start();
+        Main.UCOV_LOGGER.info("Listening on " + server.getAddress());
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    private static class RequestException extends Exception {
+        private final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange, Map<String, String> parameters) throws IOException, RequestException;
+    }
+
+    private static Map<String, String> getParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+
+        for (String parameter : query.split("&")) {
+            int separatorIndex = parameter.indexOf('=');
+            if (separatorIndex > 0) {
+                parameters.put(URLDecoder.decode(parameter.substring(0, separatorIndex), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(separatorIndex + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static String getParameter(Map<String, String> parameters, String name) throws RequestException {
+        String value = parameters.get(name);
+        if (value == null || value.isBlank()) {
+            throw new RequestException(400, "Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static Project getProject(Map<String, String> parameters) throws RequestException {
+        try {
+            return Main.parseProjectCommandLineOption(getParameter(parameters, "project"));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new RequestException(400, "Invalid project, expected id;TYPE;dir: " + parameters.get("project"));
+        }
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = (text + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) {
+        try (exchange) {
+            try {
+                handler.handle(exchange, getParameters(exchange));
+            } catch (RequestException e) {
+                sendText(exchange, e.status, e.getMessage());
+            } catch (RuntimeException e) {
+                Main.UCOV_LOGGER.info("WARNING: Request " + exchange.getRequestURI() + " failed: " + e);
+                sendText(exchange, 500, "Analysis failed: " + e);
+            }
+        } catch (IOException e) {
+            // Mostly clients disconnecting before the end of the response
+            Main.UCOV_LOGGER.info("WARNING: Unable to answer " + exchange.getRequestURI() + ": " + e.getMessage());
+        }
+    }
+
+    private void handleLibraries(HttpExchange exchange, Map<String, String> parameters) throws IOException, RequestException {
+        switch (exchange.getRequestMethod()) {
+            case "GET" -> {
+                StringBuilder text = new StringBuilder();
+                new TreeMap<>(libraries).forEach((id, library) -> text.append(library.mainProject()).append('\n'));
+                sendText(exchange, 200, text.toString().trim());
+            }
+            case "POST" -> {
+                Project mainProject = getProject(parameters);
+                if (mainProject.type() != ProjectType.LIBRARY_MAIN) {
+                    throw new RequestException(400, "Expected a LIBRARY_MAIN project: " + mainProject);
+                }
+                Path apiReportPath = Path.of(getParameter(parameters, "api"));
+
+                Main.UCOV_LOGGER.info("Loading " + mainProject);
+                UCovLibraryProject libraryProject = new UCovLibraryProject();
+                libraryProject.addExternalReference(mainProject.location(), EnumSet.of(CodeType.MAIN));
+                ApiSnapshot apiModel = Main.getApiModel(apiReportPath, libraryProject);
+
+                // Resident libraries are always compiled once, requests should only pay for the client
+                SUFSession session = new SUFSession(apiModel, libraryProject, SUFOptions.fromSettings().withSharedLibrary());
+                String binaries = "";
+                if (!session.hasLibraryBinaries()) {
+                    Main.UCOV_LOGGER.info("WARNING: No binaries for " + mainProject + ", every analysis will parse the library sources again");
+                    binaries = ", without binaries: every analysis parses the library sources again";
+                }
+
+                ResidentLibrary previousLibrary = libraries.put(mainProject.id(), new ResidentLibrary(mainProject, session));
+                if (previousLibrary != null) {
+                    previousLibrary.session().close();
+                }
+                sendText(exchange, 200, "Loaded " + mainProject + " (" + apiModel.types().size() + " exported types" + binaries + ")");
+            }
+            case "DELETE" -> {
+                String id = getParameter(parameters, "library");
+                ResidentLibrary library = libraries.remove(id);
+                if (library == null) {
+                    throw new RequestException(404, "Unknown library: " + id);
+                }
+                library.session().close();
+                sendText(exchange, 200, "Unloaded " + id);
+            }
+            default -> throw new RequestException(405, "Unsupported method: " + exchange.getRequestMethod());
+        }
+    }
+
+    private void handleSUF(HttpExchange exchange, Map<String, String> parameters) throws IOException, RequestException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            throw new RequestException(405, "Unsupported method: " + exchange.getRequestMethod());
+        }
+
+        String id = getParameter(parameters, "library");
+        ResidentLibrary library = libraries.get(id);
+        if (library == null) {
+            throw new RequestException(404, "Unknown library: " + id);
+        }
+
+        Project clientProject = getProject(parameters);
+        UsageStore usageModels = library.session().analyse(clientProject);
+
+        // Same rows, in the same order, as the SUF CSV report: sorted within the same memory bound, then sent
+        Path sufPath = Files.createTempFile("ucov-suf-", ".csv");
+        try {
+            new ExternalSortWriter(sufPath, UCovSettings.getSortRunRows()).write(usageModels.stream().map(Usage::toCSVRowString).iterator());
+
+            exchange.getResponseHeaders().set("Content-Type", "text/csv; charset=utf-8");
+            // A length of 0 would mean a chunked response, -1 is an empty one
+            long length = Files.size(sufPath);
+            exchange.sendResponseHeaders(200, length == 0 ? -1 : length);
+            Files.copy(sufPath, exchange.getResponseBody());
+        } finally {
+            Files.deleteIfExists(sufPath);
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange, Map<String, String> parameters) throws IOException, RequestException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            throw new RequestException(405, "Unsupported method: " + exchange.getRequestMethod());
+        }
+        if (!UCovMetrics.isEnabled()) {
+            throw new RequestException(404, "Metrics are disabled, set ucov.metrics to collect them");
+        }
+
+        byte[] bytes = UCovMetrics.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+}
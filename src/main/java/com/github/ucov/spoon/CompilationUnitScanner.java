@@ -0,0 +1,53 @@
+package com.github.ucov.spoon;
+
+import com.github.ucov.models.UsageStore;
+import com.github.ucov.spoon.visitors.ScanStatistics;
+import com.github.ucov.spoon.visitors.SpoonApiModelVisitor;
+import spoon.reflect.declaration.CtElement;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Scans the elements of a model compilation unit by compilation unit, each with its own visitor, so that the
+ * usages of each file are kept apart. Spoon models are not thread-safe: the scan runs on the calling thread.
+ */
+public class CompilationUnitScanner {
+    private final Supplier<SpoonApiModelVisitor> visitorFactory;
+    private ScanStatistics statistics = ScanStatistics.EMPTY;
+
+    public CompilationUnitScanner(Supplier<SpoonApiModelVisitor> visitorFactory) {
+        this.visitorFactory = visitorFactory;
+    }
+
+    private UsageStore scan(List<CtElement> elements) {
+        SpoonApiModelVisitor visitor = visitorFactory.get();
+        for (CtElement element : elements) {
+            visitor.scan(element);
+        }
+
+        statistics = statistics.plus(visitor.getStatistics());
+        return visitor.getUsageModelCollection();
+    }
+
+    /**
+     * @return What the visitors of all scans so far went through
+     */
+    public ScanStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @param elementsByFile The elements declared in each compilation unit to scan: top-level types, package
+     *                       annotations, module directives
+     * @return The usages found in each compilation unit, sorted by path
+     */
+    public SortedMap<Path, UsageStore> scan(Map<Path, List<CtElement>> elementsByFile) {
+        SortedMap<Path, UsageStore> usageModelsByFile = new TreeMap<>();
+        for (Path file : new TreeSet<>(elementsByFile.keySet())) {
+            usageModelsByFile.put(file, scan(elementsByFile.get(file)));
+        }
+        return usageModelsByFile;
+    }
+}
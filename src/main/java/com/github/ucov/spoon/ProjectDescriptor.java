@@ -0,0 +1,59 @@
+package com.github.ucov.spoon;
+
+import com.github.ucov.cache.Hashing;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The layout of a project: its source directories and the Java version they are written in. Resolving it
+ * may mean parsing a whole tree of Maven poms, so it is done once per project and cached, see
+ * {@link SpoonLauncherUtilities#getProjectDescriptor(Path)}.
+ *
+ * @param mainRoots         The main source directories
+ * @param testRoots         The test source directories
+ * @param sampleRoot        The samples directory, or null if there is none
+ * @param complianceLevel   The Java version of the sources
+ * @param poms              The pom files the layout was read from, empty if it was guessed from the directories
+ * @param layoutDirectories The directories whose existence the layout depends on that existed when it was read
+ */
+public record ProjectDescriptor(List<Path> mainRoots, List<Path> testRoots, Path sampleRoot, int complianceLevel,
+                                List<PomState> poms, Set<Path> layoutDirectories) {
+    /**
+     * A pom file as it was when the layout was read from it
+     *
+     * @param pom      The pom file
+     * @param modified Its modification time, in milliseconds
+     * @param hash     The SHA-256 of its contents
+     */
+    public record PomState(Path pom, long modified, String hash) {
+        private static String getHash(Path file) throws IOException {
+            return Hashing.sha256Hex(Files.readAllBytes(file));
+        }
+
+        /**
+         * @throws IOException if the pom cannot be read
+         */
+        public static PomState of(Path pom) throws IOException {
+            return new PomState(pom, Files.getLastModifiedTime(pom).toMillis(), getHash(pom));
+        }
+
+        /**
+         * @return Whether the pom is still what it was, a pom whose modification time differs (e.g. checked out
+         * again) is hashed and compared with the hash it had
+         */
+        public boolean isUnchanged() {
+            try {
+                if (!Files.isRegularFile(pom)) {
+                    return false;
+                }
+                return Files.getLastModifiedTime(pom).toMillis() == modified || getHash(pom).equals(hash);
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -4,32 +4,90 @@ import spoon.reflect.declaration.CtElement;
 import spoon.reflect.visitor.filter.AbstractFilter;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Matches the elements declared in files under one of the given directories (case-insensitively), or
+ * outside all of them if inverted. The decision is taken once per file, through a trie of the directory
+ * path segments, and then cached: the filter is called for every visited node.
+ */
 public class SpoonCodeDirectoryFilter extends AbstractFilter<CtElement> {
-    private final ArrayList<Path> paths;
+    private final PathTrie paths = new PathTrie();
     private final boolean invert;
+    private final Map<File, Boolean> matchesByFile = new ConcurrentHashMap<>();
 
-    public SpoonCodeDirectoryFilter(ArrayList<Path> paths, boolean invert) {
-        this.paths = paths;
+    /**
+     * Directories as path segments, a path is matched if it goes through a node that ends a directory
+     */
+    private static class PathTrie {
+        private final Map<String, PathTrie> children = new HashMap<>();
+        private boolean directory = false;
+
+        void add(String path) {
+            PathTrie node = this;
+            int start = 0;
+            while (start <= path.length()) {
+                int end = path.indexOf(File.separatorChar, start);
+                if (end < 0) {
+                    end = path.length();
+                }
+                node = node.children.computeIfAbsent(path.substring(start, end), t -> new PathTrie());
+                start = end + 1;
+            }
+            node.directory = true;
+        }
+
+        boolean containsParentOf(String path) {
+            PathTrie node = this;
+            int start = 0;
+            // The last segment is the file itself, only the directories above it may match
+            int end;
+            while ((end = path.indexOf(File.separatorChar, start)) >= 0) {
+                node = node.children.get(path.substring(start, end));
+                if (node == null) {
+                    return false;
+                }
+                if (node.directory) {
+                    return true;
+                }
+                start = end + 1;
+            }
+            return false;
+        }
+    }
+
+    public SpoonCodeDirectoryFilter(Collection<Path> paths, boolean invert) {
+        for (Path path : paths) {
+            this.paths.add(path.toAbsolutePath().toString().toLowerCase());
+            // Also through the real path, in case the element files went through symbolic links
+            try {
+                this.paths.add(path.toRealPath().toString().toLowerCase());
+            } catch (IOException ignored) {
+            }
+        }
         this.invert = invert;
     }
 
+    private boolean isUnderPaths(File file) {
+        return paths.containsParentOf(file.getAbsolutePath().toLowerCase());
+    }
+
     @Override
     public boolean matches(CtElement element) {
-        boolean matched = false;
-
-        if (element.getPosition().getFile() != null) {
-            String elementPath = element.getPosition().getFile().getAbsolutePath();
+        File file = element.getPosition().getFile();
+        if (file == null) {
+            return invert;
+        }
 
-            for (Path path : paths) {
-                boolean matches = elementPath.toLowerCase().startsWith(path.toAbsolutePath().toString().toLowerCase() + File.separatorChar);
-                if (matches) {
-                    matched = true;
-                    break;
-                }
-            }
+        Boolean matched = matchesByFile.get(file);
+        if (matched == null) {
+            matched = isUnderPaths(file);
+            matchesByFile.put(file, matched);
         }
 
         return invert != matched;
@@ -2,6 +2,11 @@ package com.github.ucov.spoon;
 
 import com.github.ucov.CodeType;
 import com.github.ucov.Main;
+import com.github.ucov.UCovSettings;
+import com.github.ucov.cache.ProjectDescriptorCache;
+import com.github.ucov.metrics.MetricsPhase;
+import com.github.ucov.metrics.UCovMetrics;
+import com.github.ucov.spoon.ProjectDescriptor.PomState;
 import spoon.Launcher;
 import spoon.MavenLauncher;
 import spoon.SpoonException;
@@ -9,10 +14,11 @@ import spoon.support.StandardEnvironment;
 import spoon.support.compiler.SpoonPom;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.security.InvalidParameterException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 public class SpoonLauncherUtilities {
@@ -34,71 +40,192 @@ public class SpoonLauncherUtilities {
         return launcher;
     }
 
-    private static ArrayList<Path> getPomProjectPaths(String mavenProject, spoon.MavenLauncher.SOURCE_TYPE sourceType) throws SpoonException {
-        SpoonPom model;
-        ArrayList<Path> paths = new ArrayList<>();
+    private static final int DEFAULT_COMPLIANCE_LEVEL = 11;
+
+    // Directories of a module that Maven projects get sources from once they exist, generated ones included
+    private static final List<String> MODULE_SOURCE_DIRECTORIES = List.of("src/main/java", "src/test/java", "target/generated-sources", "target/generated-test-sources");
 
-        File mavenProjectFile = new File(mavenProject);
-        if (!mavenProjectFile.exists()) {
-            throw new SpoonException(mavenProject + " does not exist.");
+    // Resolved project descriptors, by absolute project location
+    private static final Map<Path, ProjectDescriptor> PROJECT_DESCRIPTORS = new ConcurrentHashMap<>();
+
+    private static SpoonPom getPom(Path projectLocation) throws SpoonException {
+        if (!Files.exists(projectLocation)) {
+            throw new SpoonException(projectLocation + " does not exist.");
         }
 
         Pattern profileFilter = Pattern.compile("^$");
 
-        try {
-            model = new SpoonPom(mavenProject, sourceType, new StandardEnvironment(), profileFilter);
+        try (MetricsPhase phase = UCovMetrics.start("pomParsing", projectLocation.toString())) {
+            return new SpoonPom(projectLocation.toString(), MavenLauncher.SOURCE_TYPE.ALL_SOURCE, new StandardEnvironment(), profileFilter);
         } catch (Exception e) {
             throw new SpoonException("Unable to read the pom", e);
         }
+    }
 
-        // app source
-        if (spoon.MavenLauncher.SOURCE_TYPE.APP_SOURCE == sourceType || spoon.MavenLauncher.SOURCE_TYPE.ALL_SOURCE == sourceType) {
-            List<File> sourceDirectories = model.getSourceDirectories();
-            for (File sourceDirectory : sourceDirectories) {
-                Main.UCOV_LOGGER.info("Detected Project MAIN Source Directory at: " + sourceDirectory);
-                paths.add(sourceDirectory.toPath());
+    private static void addPomFiles(SpoonPom model, List<PomState> poms) {
+        Path pom = model.getFileSystemParent().toPath().resolve("pom.xml");
+        if (Files.isRegularFile(pom)) {
+            try {
+                poms.add(PomState.of(pom));
+            } catch (IOException e) {
+                Main.UCOV_LOGGER.info("WARNING: Unable to read " + pom + ", changes to it will not be noticed");
             }
         }
+        for (SpoonPom module : model.getModules()) {
+            addPomFiles(module, poms);
+        }
+    }
+
+    private static ProjectDescriptor resolveProjectDescriptor(Path projectLocation) {
+        List<Path> mainRoots = new ArrayList<>();
+        List<Path> testRoots = new ArrayList<>();
+        List<PomState> poms = new ArrayList<>();
+        int complianceLevel = DEFAULT_COMPLIANCE_LEVEL;
+
+        Main.UCOV_LOGGER.info("Trying to detect source directories for project: " + projectLocation);
+
+        try {
+            SpoonPom model = getPom(projectLocation);
+
+            // app source
+            for (File sourceDirectory : model.getSourceDirectories()) {
+                Main.UCOV_LOGGER.info("Detected Project MAIN Source Directory at: " + sourceDirectory);
+                mainRoots.add(sourceDirectory.toPath());
+            }
 
-        // test source
-        if (spoon.MavenLauncher.SOURCE_TYPE.TEST_SOURCE == sourceType || spoon.MavenLauncher.SOURCE_TYPE.ALL_SOURCE == sourceType) {
-            List<File> testSourceDirectories = model.getTestDirectories();
-            for (File sourceDirectory : testSourceDirectories) {
+            // test source
+            for (File sourceDirectory : model.getTestDirectories()) {
                 Main.UCOV_LOGGER.info("Detected Project TEST Source Directory at: " + sourceDirectory);
-                paths.add(sourceDirectory.toPath());
+                testRoots.add(sourceDirectory.toPath());
+            }
+
+            complianceLevel = model.getSourceVersion();
+            addPomFiles(model, poms);
+        } catch (Exception ignored) {
+            Main.UCOV_LOGGER.info("WARNING: Falling back to manual detection of project source paths because no maven pom could be parsed for the passed project");
+            Path mainPath = getPossibleMainPath(projectLocation);
+            if (mainPath != null) {
+                Main.UCOV_LOGGER.info("Detected Project MAIN Source Directory at: " + mainPath);
+                mainRoots.add(mainPath);
+            }
+
+            Path testPath = getPossibleTestPath(projectLocation);
+            if (testPath != null) {
+                Main.UCOV_LOGGER.info("Detected Project TEST Source Directory at: " + testPath);
+                testRoots.add(testPath);
             }
         }
 
-        return paths;
-    }
+        Path samplePath = getPossibleSamplePath(projectLocation);
+        if (samplePath != null) {
+            Main.UCOV_LOGGER.info("Detected Project SAMPLE Source Directory at: " + samplePath);
+        }
+
+        Main.UCOV_LOGGER.info("Finished detecting source directories for project: " + projectLocation);
 
-    private static int getPomProjectSourceComplianceLevel(String mavenProject) throws SpoonException {
-        SpoonPom model;
+        Set<Path> layoutDirectories = poms.isEmpty() ? Set.of() : getLayoutDirectories(poms, mainRoots, testRoots);
+        return new ProjectDescriptor(List.copyOf(mainRoots), List.copyOf(testRoots), samplePath, complianceLevel, List.copyOf(poms), layoutDirectories);
+    }
 
-        File mavenProjectFile = new File(mavenProject);
-        if (!mavenProjectFile.exists()) {
-            throw new SpoonException(mavenProject + " does not exist.");
+    /**
+     * SpoonPom only returns the source directories that exist, generated ones included
+     *
+     * @return Among the source roots of a layout and the conventional source directories of its modules, those that exist
+     */
+    private static Set<Path> getLayoutDirectories(List<PomState> poms, List<Path> mainRoots, List<Path> testRoots) {
+        Set<Path> directories = new TreeSet<>();
+        directories.addAll(mainRoots);
+        directories.addAll(testRoots);
+        for (PomState pom : poms) {
+            for (String moduleSourceDirectory : MODULE_SOURCE_DIRECTORIES) {
+                directories.add(pom.pom().getParent().resolve(moduleSourceDirectory));
+            }
         }
 
-        Pattern profileFilter = Pattern.compile("^$");
+        directories.removeIf(t -> !Files.isDirectory(t));
+        return directories;
+    }
 
-        try {
-            model = new SpoonPom(mavenProject, MavenLauncher.SOURCE_TYPE.ALL_SOURCE, new StandardEnvironment(), profileFilter);
-        } catch (Exception e) {
-            throw new SpoonException("Unable to read the pom", e);
+    private static List<Path> getGuessedRoots(Path root) {
+        return root != null ? List.of(root) : List.of();
+    }
+
+    /**
+     * @return Whether the poms and directories a descriptor was resolved from are still the same
+     */
+    private static boolean isUpToDate(Path projectLocation, ProjectDescriptor descriptor) {
+        if (!Objects.equals(getPossibleSamplePath(projectLocation), descriptor.sampleRoot())) {
+            return false;
+        }
+
+        if (descriptor.poms().isEmpty()) {
+            // Guessed from the directories: cheap to guess again, and not valid anymore once there is a pom
+            return !Files.exists(projectLocation.resolve("pom.xml"))
+                    && descriptor.mainRoots().equals(getGuessedRoots(getPossibleMainPath(projectLocation)))
+                    && descriptor.testRoots().equals(getGuessedRoots(getPossibleTestPath(projectLocation)));
         }
 
-        return model.getSourceVersion();
+        for (PomState pom : descriptor.poms()) {
+            if (!pom.isUnchanged()) {
+                return false;
+            }
+        }
+        return getLayoutDirectories(descriptor.poms(), descriptor.mainRoots(), descriptor.testRoots()).equals(descriptor.layoutDirectories());
     }
 
-    public static int getProjectSourceComplianceLevel(Path location) {
+    private static ProjectDescriptorCache getProjectDescriptorCache() {
+        Path cacheDirectory = UCovSettings.getCacheDirectory();
+        if (cacheDirectory == null) {
+            return null;
+        }
+
         try {
-            return getPomProjectSourceComplianceLevel(location.toAbsolutePath().toString());
-        } catch (Exception ignore) {
+            return new ProjectDescriptorCache(cacheDirectory.resolve("projects"));
+        } catch (IOException e) {
+            Main.UCOV_LOGGER.info("WARNING: Unable to create the project cache directory, project descriptors will not be cached");
+            return null;
+        }
+    }
+
+    private static ProjectDescriptor loadProjectDescriptor(Path projectLocation) {
+        ProjectDescriptorCache cache = getProjectDescriptorCache();
+        if (cache != null) {
+            ProjectDescriptor descriptor = cache.load(projectLocation);
+            if (descriptor != null && isUpToDate(projectLocation, descriptor)) {
+                Main.UCOV_LOGGER.info("Reusing the cached source directories of project: " + projectLocation);
+                return descriptor;
+            }
+        }
+
+        ProjectDescriptor descriptor = resolveProjectDescriptor(projectLocation);
+        // Guessed layouts depend on directories, not on poms, and are cheap to guess again
+        if (cache != null && !descriptor.poms().isEmpty()) {
+            cache.store(projectLocation, descriptor);
+        }
+        return descriptor;
+    }
 
+    /**
+     * Resolves the layout of a project once, then again only when its poms or source directories change,
+     * within a run and across runs if the cache is enabled
+     *
+     * @param projectLocation The location of the project
+     * @return The descriptor of the project
+     */
+    public static ProjectDescriptor getProjectDescriptor(Path projectLocation) {
+        Path location = projectLocation.toAbsolutePath().normalize();
+
+        // Checked on every use, a long-running server may see the project checked out again
+        ProjectDescriptor descriptor = PROJECT_DESCRIPTORS.get(location);
+        if (descriptor == null || !isUpToDate(location, descriptor)) {
+            descriptor = loadProjectDescriptor(location);
+            PROJECT_DESCRIPTORS.put(location, descriptor);
         }
+        return descriptor;
+    }
 
-        return 11;
+    public static int getProjectSourceComplianceLevel(Path location) {
+        return getProjectDescriptor(location).complianceLevel();
     }
 
     private static Path getPossibleSamplePath(Path location) {
@@ -151,18 +278,6 @@ public class SpoonLauncherUtilities {
         return null;
     }
 
-    private static MavenLauncher.SOURCE_TYPE getSourceTypeValue(EnumSet<CodeType> codeTypes) throws InvalidParameterException {
-        if (codeTypes.contains(CodeType.MAIN) && codeTypes.contains(CodeType.TEST)) {
-            return MavenLauncher.SOURCE_TYPE.ALL_SOURCE;
-        } else if (codeTypes.contains(CodeType.MAIN)) {
-            return MavenLauncher.SOURCE_TYPE.APP_SOURCE;
-        } else if (codeTypes.contains(CodeType.TEST)) {
-            return MavenLauncher.SOURCE_TYPE.TEST_SOURCE;
-        } else {
-            throw new InvalidParameterException();
-        }
-    }
-
     public static Launcher getLauncherForProject(Path projectLocation, EnumSet<CodeType> codeTypes) {
         Launcher launcher = getCommonLauncherInstance();
         applyProjectToLauncher(launcher, projectLocation, codeTypes);
@@ -178,62 +293,33 @@ public class SpoonLauncherUtilities {
         }
     }
 
+    private static void addPath(ArrayList<Path> paths, Path path) {
+        if (!paths.contains(path)) {
+            paths.add(path);
+        }
+    }
+
     public static ArrayList<Path> getProjectPaths(Path projectLocation, EnumSet<CodeType> codeTypes) {
         ArrayList<Path> paths = new ArrayList<>();
+        ProjectDescriptor descriptor = getProjectDescriptor(projectLocation);
 
-        Main.UCOV_LOGGER.info("Trying to detect source directories for project: " + projectLocation + " with types: " + codeTypes);
+        if (codeTypes.contains(CodeType.MAIN)) {
+            descriptor.mainRoots().forEach(t -> addPath(paths, t));
+        }
 
-        if (codeTypes.contains(CodeType.MAIN) || codeTypes.contains(CodeType.TEST)) {
-            try {
-                MavenLauncher.SOURCE_TYPE sourceType = getSourceTypeValue(codeTypes);
-                for (Path p : getPomProjectPaths(projectLocation.toString(), sourceType)) {
-                    if (!paths.contains(p)) {
-                        paths.add(p);
-                    }
-                }
-            } catch (Exception ignored) {
-                Main.UCOV_LOGGER.info("WARNING: Falling back to manual detection of project source paths because no maven pom could be parsed for the passed project");
-                if (codeTypes.contains(CodeType.MAIN)) {
-                    Path mainPath = getPossibleMainPath(projectLocation);
-                    if (mainPath != null) {
-                        Main.UCOV_LOGGER.info("Detected Project MAIN Source Directory at: " + mainPath);
-                        if (!paths.contains(mainPath)) {
-                            paths.add(mainPath);
-                        }
-                    }
-                }
-
-                if (codeTypes.contains(CodeType.TEST)) {
-                    Path testPath = getPossibleTestPath(projectLocation);
-                    if (testPath != null) {
-                        Main.UCOV_LOGGER.info("Detected Project TEST Source Directory at: " + testPath);
-                        if (!paths.contains(testPath)) {
-                            paths.add(testPath);
-                        }
-                    }
-                }
-            }
+        if (codeTypes.contains(CodeType.TEST)) {
+            descriptor.testRoots().forEach(t -> addPath(paths, t));
         }
 
-        if (codeTypes.contains(CodeType.SAMPLE)) {
-            Path samplePath = getPossibleSamplePath(projectLocation);
-            if (samplePath != null) {
-                Main.UCOV_LOGGER.info("Detected Project SAMPLE Source Directory at: " + samplePath);
-                if (!paths.contains(samplePath)) {
-                    paths.add(samplePath);
-                }
-            }
+        if (codeTypes.contains(CodeType.SAMPLE) && descriptor.sampleRoot() != null) {
+            addPath(paths, descriptor.sampleRoot());
         }
 
         if (paths.isEmpty()) {
-            Main.UCOV_LOGGER.info("WARNING: Adding the entire directory because no project got detected and CodeTypes = ALL!");
-            if (!paths.contains(projectLocation)) {
-                paths.add(projectLocation);
-            }
+            Main.UCOV_LOGGER.info("WARNING: Adding the entire directory of " + projectLocation + " because no project got detected and CodeTypes = " + codeTypes + "!");
+            paths.add(projectLocation);
         }
 
-        Main.UCOV_LOGGER.info("Finished detecting source directories for project: " + projectLocation);
-
         return paths;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+package com.github.ucov.spoon.visitors;
+
+import com.github.ucov.metrics.MetricsPhase;
+
+/**
+ * What a SpoonApiModelVisitor went through
+ *
+ * @param files   Compilation units whose top-level types were visited
+ * @param nodes   AST nodes visited
+ * @param lookups API symbol lookups of client elements
+ * @param matches Lookups that found an API symbol
+ * @param usages  Distinct usages collected
+ */
+public record ScanStatistics(long files, long nodes, long lookups, long matches, long usages) {
+    public static final ScanStatistics EMPTY = new ScanStatistics(0, 0, 0, 0, 0);
+
+    public ScanStatistics plus(ScanStatistics other) {
+        return new ScanStatistics(files + other.files, nodes + other.nodes, lookups + other.lookups,
+                matches + other.matches, usages + other.usages);
+    }
+
+    public void addTo(MetricsPhase phase) {
+        phase.add("files", files).add("nodes", nodes).add("lookups", lookups).add("matches", matches).add("usages", usages);
+    }
+}
@@ -1,10 +1,13 @@
 package com.github.ucov.spoon.visitors;
 
-import com.github.maracas.roseau.api.model.*;
-import com.github.ucov.RoseauFQNGenertor;
+import com.github.maracas.roseau.api.model.Modifier;
+import com.github.maracas.roseau.api.model.SourceLocation;
+import com.github.ucov.api.ApiSymbolIndex;
+import com.github.ucov.metrics.CompilationUnitScanEvent;
+import com.github.ucov.models.ApiSymbol;
 import com.github.ucov.models.SymbolKind;
 import com.github.ucov.models.SymbolUse;
-import com.github.ucov.models.Usage;
+import com.github.ucov.models.UsageStore;
 import spoon.reflect.code.*;
 import spoon.reflect.cu.SourcePosition;
 import spoon.reflect.declaration.*;
@@ -13,27 +16,133 @@ import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.CtScanner;
 import spoon.reflect.visitor.Filter;
 
+import java.io.File;
 import java.nio.file.Path;
-import java.util.Collection;
-import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class SpoonApiModelVisitor extends CtScanner {
-    private final API api;
+    private final ApiSymbolIndex apiSymbolIndex;
+    private final TopDefinitionResolver topDefinitionResolver;
+    private final SpoonFullyQualifiedNameCache nameCache;
     private final Filter<CtElement> filter;
-    private final ArrayList<Usage> usageModelCollection = new ArrayList<>();
+    private final UsageStore usageModelCollection;
     private final String projectId;
     private final String projectType;
     private final Path projectLocation;
 
-    public SpoonApiModelVisitor(API api, Filter<CtElement> filter, String projectId, String projectType, Path projectLocation) {
-        this.api = api;
+    private final Set<File> visitedFiles = new HashSet<>();
+    private long visitedNodes = 0;
+    private long lookups = 0;
+    private long matches = 0;
+
+    public SpoonApiModelVisitor(ApiSymbolIndex apiSymbolIndex, Filter<CtElement> filter, String projectId, String projectType, Path projectLocation) {
+        this(apiSymbolIndex, new SpoonFullyQualifiedNameCache(), filter, projectId, projectType, projectLocation);
+    }
+
+    private SpoonApiModelVisitor(ApiSymbolIndex apiSymbolIndex, SpoonFullyQualifiedNameCache nameCache, Filter<CtElement> filter, String projectId, String projectType, Path projectLocation) {
+        this(apiSymbolIndex, new TopDefinitionResolver(apiSymbolIndex, nameCache), nameCache, filter, projectId, projectType, projectLocation);
+    }
+
+    /**
+     * @param topDefinitionResolver Shared by all the visitors of a client model, so that each method is only resolved once
+     * @param nameCache             Shared by all the visitors of a client model, and by its top definition resolver
+     */
+    public SpoonApiModelVisitor(ApiSymbolIndex apiSymbolIndex, TopDefinitionResolver topDefinitionResolver, SpoonFullyQualifiedNameCache nameCache, Filter<CtElement> filter, String projectId, String projectType, Path projectLocation) {
+        this.apiSymbolIndex = apiSymbolIndex;
+        this.usageModelCollection = new UsageStore(apiSymbolIndex);
+        this.topDefinitionResolver = topDefinitionResolver;
+        this.nameCache = nameCache;
         this.filter = filter;
         this.projectId = projectId;
         this.projectType = projectType;
         this.projectLocation = projectLocation;
     }
 
+    @Override
+    protected void enter(CtElement element) {
+        visitedNodes++;
+
+        if (element instanceof CtType<?> type && type.isTopLevel() && type.getPosition().getFile() != null) {
+            visitedFiles.add(type.getPosition().getFile());
+        }
+    }
+
+    @Override
+    public void scan(CtElement element) {
+        if (element instanceof CtType<?> type && type.isTopLevel()) {
+            scanTopLevelType(type);
+        } else {
+            super.scan(element);
+        }
+    }
+
+    /**
+     * Scans a top-level type, within a JFR event if one is being recorded
+     */
+    private void scanTopLevelType(CtType<?> type) {
+        CompilationUnitScanEvent event = new CompilationUnitScanEvent();
+        if (!event.isEnabled()) {
+            super.scan(type);
+            return;
+        }
+
+        long nodes = visitedNodes;
+        int usages = usageModelCollection.size();
+        event.begin();
+        super.scan(type);
+        event.end();
+
+        if (event.shouldCommit()) {
+            File file = type.getPosition().getFile();
+            event.path = file != null ? file.getPath() : null;
+            event.type = type.getQualifiedName();
+            event.nodes = visitedNodes - nodes;
+            event.usages = usageModelCollection.size() - usages;
+            event.commit();
+        }
+    }
+
+    private boolean count(boolean match) {
+        lookups++;
+        if (match) {
+            matches++;
+        }
+        return match;
+    }
+
+    private ApiSymbol getApiType(String fullyQualifiedName) {
+        ApiSymbol type = apiSymbolIndex.getType(fullyQualifiedName);
+        count(type != null);
+        return type;
+    }
+
+    private ApiSymbol getApiMethod(String fullyQualifiedName) {
+        ApiSymbol method = apiSymbolIndex.getMethod(fullyQualifiedName);
+        count(method != null);
+        return method;
+    }
+
+    private ApiSymbol getApiConstructor(String fullyQualifiedName) {
+        ApiSymbol constructor = apiSymbolIndex.getConstructor(fullyQualifiedName);
+        count(constructor != null);
+        return constructor;
+    }
+
+    private ApiSymbol getApiField(String fullyQualifiedName) {
+        ApiSymbol field = apiSymbolIndex.getField(fullyQualifiedName);
+        count(field != null);
+        return field;
+    }
+
+    /**
+     * Adds a usage of an API symbol, stored on the symbol ID rather than its name
+     */
+    private void addUsage(ApiSymbol symbol, SymbolKind usageKind, SymbolUse usageType, SourceLocation position) {
+        usageModelCollection.add(projectId, projectType, symbol, usageKind, usageType, position, projectLocation);
+    }
+
     private SourceLocation convertSpoonPosition(SourcePosition position) {
         return position.isValidPosition()
                 ? new SourceLocation(
@@ -55,72 +164,27 @@ public class SpoonApiModelVisitor extends CtScanner {
         }
 
         CtExecutableReference<T> executable = invocation.getExecutable();
-        String fullyQualifiedName = SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(invocation);
+        String fullyQualifiedName = nameCache.getFullyQualifiedName(executable);
         SourceLocation position = convertSpoonPosition(invocation.getPosition());
 
-        Collection<CtMethod<?>> topDefinitions = null;
-
-        if (executable.getExecutableDeclaration() instanceof CtMethod<?> ctMethod) {
-            topDefinitions = ctMethod.getTopDefinitions();
-        }
-        
-        for (TypeDecl apiType : api.getExportedTypes().toList()) {
-            for (MethodDecl method : apiType.getAllMethods().toList()) {
-                if (RoseauFQNGenertor.getFullyQualifiedNameFromRoseauMethodDecl(method).equals(fullyQualifiedName)) {
-                    if (!method.getModifiers().contains(Modifier.ABSTRACT)) {
-                        boolean isStatic = method.getModifiers().contains(Modifier.STATIC);
-                        Usage usageModel = new Usage(
-                                projectId,
-                                projectType,
-                                RoseauFQNGenertor.getFullyQualifiedNameFromRoseauMethodDecl(method),
-                                SymbolKind.SYMBOL_KIND_METHOD,
-                                isStatic ? SymbolUse.SYMBOL_USE_STATIC_INVOCATION : SymbolUse.SYMBOL_USE_INVOCATION,
-                                position,
-                                projectLocation
-                        );
-                        if (!usageModelCollection.contains(usageModel)) {
-                            usageModelCollection.add(usageModel);
-                        }
-                    } else {
-                        Usage usageModel = new Usage(
-                                projectId,
-                                projectType,
-                                RoseauFQNGenertor.getFullyQualifiedNameFromRoseauMethodDecl(method),
-                                SymbolKind.SYMBOL_KIND_METHOD,
-                                SymbolUse.SYMBOL_USE_VIRTUAL_INVOCATION,
-                                position,
-                                projectLocation
-                        );
-                        if (!usageModelCollection.contains(usageModel)) {
-                            usageModelCollection.add(usageModel);
-                        }
-                    }
-                }
-
-                if (topDefinitions != null) {
-                    for (CtMethod<?> topMethod : topDefinitions) {
-                        CtType<?> declaringType = topMethod.getDeclaringType();
-                        String mFQN = declaringType.getQualifiedName() + "." + topMethod.getSignature();
-
-                        if (RoseauFQNGenertor.getFullyQualifiedNameFromRoseauMethodDecl(method).equals(mFQN)) {
-                            Usage usageModel = new Usage(
-                                    projectId,
-                                    projectType,
-                                    RoseauFQNGenertor.getFullyQualifiedNameFromRoseauMethodDecl(method),
-                                    SymbolKind.SYMBOL_KIND_METHOD,
-                                    SymbolUse.SYMBOL_USE_VIRTUAL_INVOCATION,
-                                    position,
-                                    projectLocation
-                            );
-                            if (!usageModelCollection.contains(usageModel)) {
-                                usageModelCollection.add(usageModel);
-                            }
-                            break;
-                        }
-                    }
-                }
+        // Resolving the declaration and walking its hierarchy is only worth it if an API method may be overridden
+        List<ApiSymbol> topDefinitions = apiSymbolIndex.mayBeOverriddenBy(executable.getSimpleName(), executable.getParameters().size())
+                ? topDefinitionResolver.getApiTopDefinitions(executable, fullyQualifiedName)
+                : List.of();
+
+        ApiSymbol method = getApiMethod(fullyQualifiedName);
+        if (method != null) {
+            if (!method.hasModifier(Modifier.ABSTRACT)) {
+                boolean isStatic = method.hasModifier(Modifier.STATIC);
+                addUsage(method, SymbolKind.SYMBOL_KIND_METHOD, isStatic ? SymbolUse.SYMBOL_USE_STATIC_INVOCATION : SymbolUse.SYMBOL_USE_INVOCATION, position);
+            } else {
+                addUsage(method, SymbolKind.SYMBOL_KIND_METHOD, SymbolUse.SYMBOL_USE_VIRTUAL_INVOCATION, position);
             }
         }
+
+        for (ApiSymbol topDefinition : topDefinitions) {
+            addUsage(topDefinition, SymbolKind.SYMBOL_KIND_METHOD, SymbolUse.SYMBOL_USE_VIRTUAL_INVOCATION, position);
+        }
     }
 
     @Override
@@ -131,27 +195,11 @@ public class SpoonApiModelVisitor extends CtScanner {
             return;
         }
 
-        String fullyQualifiedName = SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(fieldRead);
+        ApiSymbol field = getApiField(nameCache.getFullyQualifiedName(fieldRead.getVariable()));
         SourceLocation position = convertSpoonPosition(fieldRead.getPosition());
 
-        for (TypeDecl apiType : api.getExportedTypes().toList()) {
-            for (FieldDecl field : apiType.getAllFields().toList()) {
-                if (field.getQualifiedName().equals(fullyQualifiedName)) {
-                    Usage usageModel = new Usage(
-                            projectId,
-                            projectType,
-                            fullyQualifiedName,
-                            SymbolKind.SYMBOL_KIND_FIELD,
-                            SymbolUse.SYMBOL_USE_INSTANCE_FIELD_READ,
-                            position,
-                            projectLocation
-                    );
-                    if (!usageModelCollection.contains(usageModel)) {
-                        usageModelCollection.add(usageModel);
-                    }
-                    return;
-                }
-            }
+        if (field != null) {
+            addUsage(field, SymbolKind.SYMBOL_KIND_FIELD, SymbolUse.SYMBOL_USE_INSTANCE_FIELD_READ, position);
         }
     }
 
@@ -163,27 +211,11 @@ public class SpoonApiModelVisitor extends CtScanner {
             return;
         }
 
-        String fullyQualifiedName = SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(fieldWrite);
+        ApiSymbol field = getApiField(nameCache.getFullyQualifiedName(fieldWrite.getVariable()));
         SourceLocation position = convertSpoonPosition(fieldWrite.getPosition());
 
-        for (TypeDecl apiType : api.getExportedTypes().toList()) {
-            for (FieldDecl field : apiType.getAllFields().toList()) {
-                if (field.getQualifiedName().equals(fullyQualifiedName)) {
-                    Usage usageModel = new Usage(
-                            projectId,
-                            projectType,
-                            fullyQualifiedName,
-                            SymbolKind.SYMBOL_KIND_FIELD,
-                            SymbolUse.SYMBOL_USE_INSTANCE_FIELD_WRITE,
-                            position,
-                            projectLocation
-                    );
-                    if (!usageModelCollection.contains(usageModel)) {
-                        usageModelCollection.add(usageModel);
-                    }
-                    return;
-                }
-            }
+        if (field != null) {
+            addUsage(field, SymbolKind.SYMBOL_KIND_FIELD, SymbolUse.SYMBOL_USE_INSTANCE_FIELD_WRITE, position);
         }
     }
 
@@ -199,39 +231,20 @@ public class SpoonApiModelVisitor extends CtScanner {
             return;
         }
 
-        String fullyQualifiedName = SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(ctConstructorCall);
+        ApiSymbol constructor = getApiConstructor(nameCache.getFullyQualifiedName(ctConstructorCall.getExecutable()));
         SourceLocation position = convertSpoonPosition(ctConstructorCall.getPosition());
 
-        for (ClassDecl apiType : api.getExportedClasses().toList()) {
-            for (ConstructorDecl constructor : apiType.getConstructors()) {
-                if (RoseauFQNGenertor.getFullyQualifiedNameFromRoseauConstructorDecl(constructor).equals(fullyQualifiedName)) {
-                    Usage usageModel = new Usage(
-                            projectId,
-                            projectType,
-                            fullyQualifiedName,
-                            SymbolKind.SYMBOL_KIND_CONSTRUCTOR,
-                            SymbolUse.SYMBOL_USE_INVOCATION,
-                            position,
-                            projectLocation
-                    );
-                    if (!usageModelCollection.contains(usageModel)) {
-                        usageModelCollection.add(usageModel);
-                    }
-                    usageModel = new Usage(
-                            projectId,
-                            projectType,
-                            ctConstructorCall.getExecutable().getDeclaringType().getQualifiedName(),
-                            SymbolKind.SYMBOL_KIND_CLASS,
-                            SymbolUse.SYMBOL_USE_INSTANTIATION,
-                            position,
-                            projectLocation
-                    );
-                    if (!usageModelCollection.contains(usageModel)) {
-                        usageModelCollection.add(usageModel);
-                    }
-                    return;
-                }
-            }
+        if (constructor != null) {
+            addUsage(constructor, SymbolKind.SYMBOL_KIND_CONSTRUCTOR, SymbolUse.SYMBOL_USE_INVOCATION, position);
+            usageModelCollection.add(
+                    projectId,
+                    projectType,
+                    nameCache.getFullyQualifiedName(ctConstructorCall.getExecutable().getDeclaringType()),
+                    SymbolKind.SYMBOL_KIND_CLASS,
+                    SymbolUse.SYMBOL_USE_INSTANTIATION,
+                    position,
+                    projectLocation
+            );
         }
     }
 
@@ -243,29 +256,16 @@ public class SpoonApiModelVisitor extends CtScanner {
             return;
         }
 
-        String fullyQualifiedName = SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(reference);
+        ApiSymbol type = getApiType(nameCache.getFullyQualifiedName(reference));
 
         SourceLocation position = convertSpoonPosition(reference.getPosition());
 
-        for (TypeDecl apiType : api.getExportedTypes().toList()) {
-            if (apiType.getQualifiedName().equals(fullyQualifiedName)) {
-                Usage usageModel = new Usage(
-                        projectId,
-                        projectType,
-                        fullyQualifiedName,
-                        SymbolKind.SYMBOL_KIND_TYPE,
-                        SymbolUse.SYMBOL_USE_TYPE_REFERENCE,
-                        position,
-                        projectLocation
-                );
-                if (!usageModelCollection.contains(usageModel)) {
-                    usageModelCollection.add(usageModel);
-                }
-                return;
-            }
+        if (type != null) {
+            addUsage(type, SymbolKind.SYMBOL_KIND_TYPE, SymbolUse.SYMBOL_USE_TYPE_REFERENCE, position);
         }
     }
 
+
     @Override
     public <T> void visitCtClass(CtClass<T> ctClass) {
         super.visitCtClass(ctClass);
@@ -277,45 +277,17 @@ public class SpoonApiModelVisitor extends CtScanner {
         SourceLocation position = convertSpoonPosition(ctClass.getPosition());
 
         for (CtTypeReference<?> superInterface : ctClass.getSuperInterfaces()) {
-            String fullyQualifiedName = SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(superInterface);
-            for (TypeDecl apiType : api.getExportedTypes().toList()) {
-                if (apiType.getQualifiedName().equals(fullyQualifiedName)) {
-                    Usage usageModel = new Usage(
-                            projectId,
-                            projectType,
-                            fullyQualifiedName,
-                            SymbolKind.SYMBOL_KIND_INTERFACE,
-                            SymbolUse.SYMBOL_USE_IMPLEMENTATION,
-                            position,
-                            projectLocation
-                    );
-                    if (!usageModelCollection.contains(usageModel)) {
-                        usageModelCollection.add(usageModel);
-                    }
-                    break;
-                }
+            ApiSymbol type = getApiType(nameCache.getFullyQualifiedName(superInterface));
+            if (type != null) {
+                addUsage(type, SymbolKind.SYMBOL_KIND_INTERFACE, SymbolUse.SYMBOL_USE_IMPLEMENTATION, position);
             }
         }
 
         CtTypeReference<?> superClass = ctClass.getSuperclass();
         if (superClass != null) {
-            String fullyQualifiedName = SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(superClass);
-            for (TypeDecl apiType : api.getExportedTypes().toList()) {
-                if (apiType.getQualifiedName().equals(fullyQualifiedName)) {
-                    Usage usageModel = new Usage(
-                            projectId,
-                            projectType,
-                            fullyQualifiedName,
-                            SymbolKind.SYMBOL_KIND_CLASS,
-                            SymbolUse.SYMBOL_USE_INHERITANCE,
-                            position,
-                            projectLocation
-                    );
-                    if (!usageModelCollection.contains(usageModel)) {
-                        usageModelCollection.add(usageModel);
-                    }
-                    break;
-                }
+            ApiSymbol type = getApiType(nameCache.getFullyQualifiedName(superClass));
+            if (type != null) {
+                addUsage(type, SymbolKind.SYMBOL_KIND_CLASS, SymbolUse.SYMBOL_USE_INHERITANCE, position);
             }
         }
     }
@@ -331,24 +303,10 @@ public class SpoonApiModelVisitor extends CtScanner {
         SourceLocation position = convertSpoonPosition(intrface.getPosition());
 
         for (CtTypeReference<?> superInterface : intrface.getSuperInterfaces()) {
-            String fullyQualifiedName = SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(superInterface);
-
-            for (TypeDecl apiType : api.getExportedTypes().toList()) {
-                if (apiType.getQualifiedName().equals(fullyQualifiedName)) {
-                    Usage usageModel = new Usage(
-                            projectId,
-                            projectType,
-                            fullyQualifiedName,
-                            SymbolKind.SYMBOL_KIND_INTERFACE,
-                            SymbolUse.SYMBOL_USE_EXTENSION,
-                            position,
-                            projectLocation
-                    );
-                    if (!usageModelCollection.contains(usageModel)) {
-                        usageModelCollection.add(usageModel);
-                    }
-                    break;
-                }
+            ApiSymbol type = getApiType(nameCache.getFullyQualifiedName(superInterface));
+
+            if (type != null) {
+                addUsage(type, SymbolKind.SYMBOL_KIND_INTERFACE, SymbolUse.SYMBOL_USE_EXTENSION, position);
             }
         }
     }
@@ -361,34 +319,16 @@ public class SpoonApiModelVisitor extends CtScanner {
             return;
         }
 
+        // Most client methods share no name and parameter count with an overridable API method,
+        // they are rejected here without walking their hierarchy
+        if (!apiSymbolIndex.mayBeOverriddenBy(method.getSimpleName(), method.getParameters().size())) {
+            return;
+        }
+
         SourceLocation position = convertSpoonPosition(method.getPosition());
 
-        // To optimize, we should start by fetching all methods from the API
-        // that *could* be overridden in client code; and then build the
-        // top definition list only for those methods that have a matching name
-
-        Collection<CtMethod<?>> topDefinitions = method.getTopDefinitions();
-        for (TypeDecl apiType : api.getExportedTypes().toList()) {
-            for (MethodDecl m : apiType.getAllMethods().toList()) {
-                for (CtMethod<?> topMethod : topDefinitions) {
-                    String fullyQualifiedName = SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(topMethod);
-
-                    if (RoseauFQNGenertor.getFullyQualifiedNameFromRoseauMethodDecl(m).equals(fullyQualifiedName)) {
-                        Usage usageModel = new Usage(
-                                projectId,
-                                projectType,
-                                fullyQualifiedName,
-                                SymbolKind.SYMBOL_KIND_METHOD,
-                                SymbolUse.SYMBOL_USE_OVERRIDING,
-                                position,
-                                projectLocation
-                        );
-                        if (!usageModelCollection.contains(usageModel)) {
-                            usageModelCollection.add(usageModel);
-                        }
-                    }
-                }
-            }
+        for (ApiSymbol topDefinition : topDefinitionResolver.getApiTopDefinitions(method)) {
+            addUsage(topDefinition, SymbolKind.SYMBOL_KIND_METHOD, SymbolUse.SYMBOL_USE_OVERRIDING, position);
         }
     }
 
@@ -409,73 +349,41 @@ public class SpoonApiModelVisitor extends CtScanner {
 
         CtType<?> declaringType = overriddenMethod.getDeclaringType();
         SourceLocation position = convertSpoonPosition(lambda.getPosition());
-        for (TypeDecl apiType : api.getExportedTypes().toList()) {
-            if (apiType.getQualifiedName().equals(SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(declaringType))) {
-                Usage usageModel = new Usage(
-                        projectId,
-                        projectType,
-                        declaringType.getQualifiedName(),
-                        SymbolKind.SYMBOL_KIND_INTERFACE,
-                        SymbolUse.SYMBOL_USE_IMPLEMENTATION,
-                        position,
-                        projectLocation
-                );
-                if (!usageModelCollection.contains(usageModel)) {
-                    usageModelCollection.add(usageModel);
-                }
-                break;
-            }
+        ApiSymbol type = getApiType(SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(declaringType));
+        if (type != null) {
+            addUsage(type, SymbolKind.SYMBOL_KIND_INTERFACE, SymbolUse.SYMBOL_USE_IMPLEMENTATION, position);
         }
 
         // (ii) They override a method from the interface they implement
-        String methodFqn = SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(overriddenMethod);
-        for (TypeDecl apiType : api.getExportedTypes().toList()) {
-            for (MethodDecl method : apiType.getAllMethods().toList()) {
-                if (RoseauFQNGenertor.getFullyQualifiedNameFromRoseauMethodDecl(method).equals(methodFqn)) {
-                    Usage usageModel = new Usage(
-                            projectId,
-                            projectType,
-                            methodFqn,
-                            SymbolKind.SYMBOL_KIND_METHOD,
-                            SymbolUse.SYMBOL_USE_OVERRIDING,
-                            position,
-                            projectLocation
-                    );
-                    if (!usageModelCollection.contains(usageModel)) {
-                        usageModelCollection.add(usageModel);
-                    }
-                    break;
-                }
-            }
+        ApiSymbol method = getApiMethod(nameCache.getFullyQualifiedName(overriddenMethod));
+        if (method != null) {
+            addUsage(method, SymbolKind.SYMBOL_KIND_METHOD, SymbolUse.SYMBOL_USE_OVERRIDING, position);
         }
 
         // TODO: do we want to also retrieve and mark uses for the top definitions?
         // Collection<CtMethod<?>> topDefinitions = overriddenMethod.getTopDefinitions();
-        /*for (TypeDecl apiType : api.getExportedTypes().toList()) {
-            for (MethodDecl m : apiType.getAllMethods().toList()) {
-                for (CtMethod<?> topMethod : topDefinitions) {
-                    CtType<?> topMethodDeclaringType = topMethod.getDeclaringType();
-                    String fullyQualifiedName = SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(topMethod);
-                    if (RoseauFQNGenertor.getFullyQualifiedNameFromRoseauMethodDecl(m).equals(fullyQualifiedName)) {
-                        Usage usageModel = new Usage(
-                                projectId,
-                                projectType,
-                                fullyQualifiedName,
-                                SymbolKind.SYMBOL_KIND_METHOD,
-                                SymbolUse.SYMBOL_USE_OVERRIDING,
-                                position,
-                                projectLocation
-                        );
-                        if (!usageModelCollection.contains(usageModel)) {
-                            usageModelCollection.add(usageModel);
-                        }
-                    }
-                }
+        /*for (CtMethod<?> topMethod : topDefinitions) {
+            String fullyQualifiedName = SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(topMethod);
+            if (isApiMethod(fullyQualifiedName)) {
+                Usage usageModel = new Usage(
+                        projectId,
+                        projectType,
+                        fullyQualifiedName,
+                        SymbolKind.SYMBOL_KIND_METHOD,
+                        SymbolUse.SYMBOL_USE_OVERRIDING,
+                        position,
+                        projectLocation
+                );
+                usageModelCollection.add(usageModel);
             }
         }*/
     }
 
-    public List<Usage> getUsageModelCollection() {
-        return usageModelCollection.stream().sorted().toList();
+    public UsageStore getUsageModelCollection() {
+        return usageModelCollection;
+    }
+
+    public ScanStatistics getStatistics() {
+        return new ScanStatistics(visitedFiles.size(), visitedNodes, lookups, matches, usageModelCollection.size());
     }
 }
@@ -0,0 +1,162 @@
+package com.github.ucov.spoon.visitors;
+
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.reference.CtArrayTypeReference;
+import spoon.reflect.reference.CtExecutableReference;
+import spoon.reflect.reference.CtFieldReference;
+import spoon.reflect.reference.CtIntersectionTypeReference;
+import spoon.reflect.reference.CtPackageReference;
+import spoon.reflect.reference.CtTypeParameterReference;
+import spoon.reflect.reference.CtTypeReference;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Per model cache of the fully qualified names computed by {@link SpoonFullyQualifiedNameExtractor}.
+ * Spoon creates a new reference at every use site, so references are keyed by what their name is printed
+ * from: the name of their declaring type (or package), itself cached, their simple name and, for executables,
+ * the names of their parameter types. Building such a key only takes names already held by the references
+ * and the cache, while a miss prints the name once per referenced symbol instead of once per use site.
+ * Method declarations are unique in the model and keyed by identity.
+ * See {@code SpoonFullyQualifiedNameExtractorBenchmark} for both ways of naming the elements of a corpus.
+ */
+public class SpoonFullyQualifiedNameCache {
+    /**
+     * Spoon elements compare structurally, which is far more expensive than the names themselves
+     */
+    private record IdentityKey(CtElement element) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IdentityKey other && element == other.element;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(element);
+        }
+    }
+
+    /**
+     * A type nested in another type (separator $) or declared in a package (separator .)
+     */
+    private record TypeKey(String owner, char separator, String simpleName) {
+    }
+
+    private record ArrayTypeKey(String componentType) {
+    }
+
+    private record FieldKey(String declaringType, String simpleName) {
+    }
+
+    private record ExecutableKey(String declaringType, String simpleName, List<String> parameterTypes) {
+    }
+
+    private final Map<Object, String> fullyQualifiedNames = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private String getFullyQualifiedName(Object key, Supplier<String> extractor) {
+        String fullyQualifiedName = fullyQualifiedNames.get(key);
+        if (fullyQualifiedName != null) {
+            hits.increment();
+            return fullyQualifiedName;
+        }
+
+        misses.increment();
+        fullyQualifiedName = extractor.get();
+        fullyQualifiedNames.putIfAbsent(key, fullyQualifiedName);
+        return fullyQualifiedName;
+    }
+
+    public String getFullyQualifiedName(CtMethod<?> ctMethod) {
+        return getFullyQualifiedName(new IdentityKey(ctMethod), () -> SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(ctMethod));
+    }
+
+    /**
+     * @return The name of the type, as {@link CtTypeReference#getQualifiedName()}, null for the references
+     * this cache does not name (intersection types)
+     */
+    private String getTypeName(CtTypeReference<?> ctTypeReference) {
+        if (ctTypeReference instanceof CtTypeParameterReference) {
+            // Type parameters and wildcards are named after themselves
+            return ctTypeReference.getQualifiedName();
+        }
+        if (ctTypeReference instanceof CtIntersectionTypeReference<?>) {
+            return null;
+        }
+        if (ctTypeReference instanceof CtArrayTypeReference<?> ctArrayTypeReference) {
+            String componentType = getTypeName(ctArrayTypeReference.getComponentType());
+            return componentType != null
+                    ? getFullyQualifiedName(new ArrayTypeKey(componentType), ctTypeReference::getQualifiedName)
+                    : null;
+        }
+
+        CtTypeReference<?> declaringType = ctTypeReference.getDeclaringType();
+        if (declaringType != null) {
+            String owner = getTypeName(declaringType);
+            return owner != null
+                    ? getFullyQualifiedName(new TypeKey(owner, '$', ctTypeReference.getSimpleName()), ctTypeReference::getQualifiedName)
+                    : null;
+        }
+        CtPackageReference ctPackageReference = ctTypeReference.getPackage();
+        if (ctPackageReference != null && !ctPackageReference.isUnnamedPackage()) {
+            return getFullyQualifiedName(new TypeKey(ctPackageReference.getQualifiedName(), '.', ctTypeReference.getSimpleName()), ctTypeReference::getQualifiedName);
+        }
+        // Primitive types, types of the unnamed package
+        return ctTypeReference.getSimpleName();
+    }
+
+    public String getFullyQualifiedName(CtTypeReference<?> ctTypeReference) {
+        String fullyQualifiedName = getTypeName(ctTypeReference);
+        return fullyQualifiedName != null ? fullyQualifiedName : SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(ctTypeReference);
+    }
+
+    /**
+     * @param ctExecutableReference An executable reference with a declaring type
+     */
+    public String getFullyQualifiedName(CtExecutableReference<?> ctExecutableReference) {
+        CtTypeReference<?> ctDeclaringType = ctExecutableReference.getDeclaringType();
+        String declaringType = ctDeclaringType != null ? getTypeName(ctDeclaringType) : null;
+        List<CtTypeReference<?>> parameters = ctExecutableReference.getParameters();
+        List<String> parameterTypes = new ArrayList<>(parameters.size());
+        for (CtTypeReference<?> parameter : parameters) {
+            // Unknown parameter types are printed as such, not from their name
+            String parameterType = parameter != null && !"null".equals(parameter.getSimpleName()) ? getTypeName(parameter) : null;
+            if (parameterType == null) {
+                declaringType = null;
+                break;
+            }
+            parameterTypes.add(parameterType);
+        }
+
+        if (declaringType == null) {
+            return SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(ctExecutableReference);
+        }
+        return getFullyQualifiedName(new ExecutableKey(declaringType, ctExecutableReference.getSimpleName(), parameterTypes),
+                () -> SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(ctExecutableReference));
+    }
+
+    public String getFullyQualifiedName(CtFieldReference<?> ctFieldReference) {
+        CtTypeReference<?> declaringType = ctFieldReference.getDeclaringType();
+        String declaringTypeName = declaringType != null ? getTypeName(declaringType) : null;
+        if (declaringTypeName == null) {
+            return SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(ctFieldReference);
+        }
+        return getFullyQualifiedName(new FieldKey(declaringTypeName, ctFieldReference.getSimpleName()),
+                () -> SpoonFullyQualifiedNameExtractor.getFullyQualifiedName(ctFieldReference));
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+}
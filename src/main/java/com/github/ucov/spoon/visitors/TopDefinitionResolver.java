@@ -0,0 +1,88 @@
+package com.github.ucov.spoon.visitors;
+
+import com.github.ucov.api.ApiSymbolIndex;
+import com.github.ucov.models.ApiSymbol;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.reference.CtExecutableReference;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Memoised Spoon top definition resolution, reduced to the API methods among the top definitions.
+ * Methods declared in API types are resolved once per run in the dispatch table of the API index, as the
+ * library hierarchy is fixed; methods declared in client types, and API methods the model cannot resolve,
+ * once per resolver, i.e. per client model.
+ */
+public class TopDefinitionResolver {
+    private final ApiSymbolIndex apiSymbolIndex;
+    private final SpoonFullyQualifiedNameCache nameCache;
+    private final Map<String, List<ApiSymbol>> clientTopDefinitions = new ConcurrentHashMap<>();
+
+    public TopDefinitionResolver(ApiSymbolIndex apiSymbolIndex) {
+        this(apiSymbolIndex, new SpoonFullyQualifiedNameCache());
+    }
+
+    /**
+     * @param nameCache The name cache of the model the resolved methods belong to
+     */
+    public TopDefinitionResolver(ApiSymbolIndex apiSymbolIndex, SpoonFullyQualifiedNameCache nameCache) {
+        this.apiSymbolIndex = apiSymbolIndex;
+        this.nameCache = nameCache;
+    }
+
+    private List<ApiSymbol> getApiTopDefinitions(String declaringTypeName, String fullyQualifiedName, Supplier<CtMethod<?>> declaration) {
+        Map<String, List<ApiSymbol>> topDefinitions = apiSymbolIndex.containsType(declaringTypeName)
+                ? apiSymbolIndex.getDispatchTable()
+                : clientTopDefinitions;
+
+        // Not computeIfAbsent: walking the hierarchy may take a while, and may resolve other methods
+        List<ApiSymbol> apiTopDefinitions = topDefinitions.get(fullyQualifiedName);
+        if (apiTopDefinitions == null) {
+            apiTopDefinitions = clientTopDefinitions.get(fullyQualifiedName);
+        }
+        if (apiTopDefinitions == null) {
+            CtMethod<?> method = declaration.get();
+            apiTopDefinitions = method != null ? resolve(method) : List.of();
+            // A declaration this model cannot resolve (missing dependency, shard, binary library) may resolve
+            // in the model of another client: only resolved methods go to the run-wide dispatch table
+            (method != null ? topDefinitions : clientTopDefinitions).putIfAbsent(fullyQualifiedName, apiTopDefinitions);
+        }
+        return apiTopDefinitions;
+    }
+
+    private List<ApiSymbol> resolve(CtMethod<?> method) {
+        List<ApiSymbol> apiTopDefinitions = new ArrayList<>();
+        for (CtMethod<?> topMethod : method.getTopDefinitions()) {
+            ApiSymbol apiMethod = apiSymbolIndex.getMethod(nameCache.getFullyQualifiedName(topMethod));
+            if (apiMethod != null) {
+                apiTopDefinitions.add(apiMethod);
+            }
+        }
+        return List.copyOf(apiTopDefinitions);
+    }
+
+    /**
+     * @param method A method declared in the model
+     * @return The API methods among its top definitions
+     */
+    public List<ApiSymbol> getApiTopDefinitions(CtMethod<?> method) {
+        CtType<?> declaringType = method.getDeclaringType();
+        return getApiTopDefinitions(declaringType.getQualifiedName(), nameCache.getFullyQualifiedName(method), () -> method);
+    }
+
+    /**
+     * @param executable         An invoked method, with a declaring type
+     * @param fullyQualifiedName Its fully qualified name, as computed by the caller
+     * @return The API methods among the top definitions of its declaration, empty if it cannot be resolved
+     * to a method
+     */
+    public List<ApiSymbol> getApiTopDefinitions(CtExecutableReference<?> executable, String fullyQualifiedName) {
+        return getApiTopDefinitions(executable.getDeclaringType().getQualifiedName(), fullyQualifiedName,
+                () -> executable.getExecutableDeclaration() instanceof CtMethod<?> method ? method : null);
+    }
+}
@@ -1,57 +1,30 @@
 package com.github.ucov.suf;
 
-import com.github.maracas.roseau.api.model.API;
-import com.github.ucov.CodeType;
-import com.github.ucov.Main;
-import com.github.ucov.UCovLibraryClientsProject;
 import com.github.ucov.UCovLibraryProject;
+import com.github.ucov.api.ApiSnapshot;
 import com.github.ucov.models.Project;
-import com.github.ucov.models.ProjectType;
-import com.github.ucov.models.Usage;
+import com.github.ucov.models.UsageStore;
 
-import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.EnumSet;
 import java.util.List;
 
 public class SUFGenerator {
-    private static List<Usage> Analyse(API mainProjectApiModel, UCovLibraryProject uCovLibraryProject, Project clientProject) {
-        Main.UCOV_LOGGER.info("Processing " + clientProject);
-
-        UCovLibraryClientsProject internalProject = new UCovLibraryClientsProject();
-        Path projectLocation = clientProject.location();
-        String projectId = clientProject.id();
-        String projectType = clientProject.type().name();
-
-        EnumSet<CodeType> enumSet = switch (clientProject.type()) {
-            case LIBRARY_MAIN -> EnumSet.of(CodeType.MAIN);
-            case LIBRARY_TEST -> EnumSet.of(CodeType.TEST);
-            case LIBRARY_SAMPLE -> EnumSet.of(CodeType.SAMPLE);
-            case CLIENT_ALL -> CodeType.ALL;
-            case CLIENT_MAIN -> EnumSet.of(CodeType.MAIN);
-            case CLIENT_TEST -> EnumSet.of(CodeType.TEST);
-        };
-
-        // Clients, Tests, Samples...
-        internalProject.addInternalReference(projectLocation, enumSet);
+    public static UsageStore getSUF(ApiSnapshot mainProjectApiModel, UCovLibraryProject externalProject, ArrayList<Project> projects) {
+        return getSUF(mainProjectApiModel, externalProject, projects, SUFOptions.DEFAULT);
+    }
 
-        Main.UCOV_LOGGER.info("Fetching Usage models...");
-        return internalProject.getUsageModels(mainProjectApiModel, uCovLibraryProject.getExternalReferences(), projectId, projectType, projectLocation);
+    public static UsageStore getSUF(ApiSnapshot mainProjectApiModel, UCovLibraryProject externalProject, ArrayList<Project> projects, SUFOptions options) {
+        try (SUFSession session = new SUFSession(mainProjectApiModel, externalProject, options)) {
+            return getSUF(session, projects);
+        }
     }
 
-    public static ArrayList<Usage> getSUF(API mainProjectApiModel, UCovLibraryProject externalProject, ArrayList<Project> projects) {
-        ArrayList<Usage> usageModels = new ArrayList<>();
+    public static UsageStore getSUF(SUFSession session, List<Project> projects) {
+        UsageStore usageModels = new UsageStore(session.getApiSymbolIndex());
 
-        // Add project uses if provided
-        List<Project> clientProjects = projects.stream().filter(t -> t.type() != ProjectType.LIBRARY_MAIN).toList();
-        for (Project project : clientProjects) {
-            for (Usage p : Analyse(mainProjectApiModel, externalProject, project)) {
-                if (!usageModels.contains(p)) {
-                    usageModels.add(p);
-                }
-            }
-        }
+        // Add project uses if provided, merged in project order so that the result does not depend on scheduling
+        session.analyse(projects, (project, result) -> usageModels.addAll(result));
 
         return usageModels;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+package com.github.ucov.suf;
+
+import com.github.ucov.UCovSettings;
+
+import java.nio.file.Path;
+
+/**
+ * How the SUF of a set of client projects gets computed
+ *
+ * @param workers       The number of client projects analysed concurrently
+ * @param workerHeapMB  The heap budget of a single worker in MB, 0 if unbounded
+ * @param sharedLibrary Whether client models are resolved against library binaries compiled once per run
+ *                      instead of re-parsing the library sources for every client
+ * @param cacheDirectory The directory of the per-file usage cache, null to disable caching
+ * @param shardFiles    The maximum number of client files parsed in one model, 0 to parse a client at once
+ */
+public record SUFOptions(int workers, int workerHeapMB, boolean sharedLibrary, Path cacheDirectory, int shardFiles) {
+    public static final SUFOptions DEFAULT = new SUFOptions(1, 0, false, null, 0);
+
+    public static SUFOptions fromSettings() {
+        return new SUFOptions(UCovSettings.getWorkers(), UCovSettings.getWorkerHeapMB(), UCovSettings.isSharedLibrary(),
+                UCovSettings.getCacheDirectory(), UCovSettings.getShardFiles());
+    }
+
+    /**
+     * @return The same options, resolving clients against library binaries compiled once
+     */
+    public SUFOptions withSharedLibrary() {
+        return new SUFOptions(workers, workerHeapMB, true, cacheDirectory, shardFiles);
+    }
+
+    /**
+     * Resolving against library binaries and splitting clients into shards both change what gets resolved,
+     * the other options only change how fast
+     *
+     * @return The options the usages found in a file depend on
+     */
+    public String getResultFingerprint() {
+        return "sharedLibrary=" + sharedLibrary + ";shardFiles=" + shardFiles;
+    }
+}
@@ -0,0 +1,241 @@
+package com.github.ucov.suf;
+
+import com.github.ucov.CodeType;
+import com.github.ucov.Main;
+import com.github.ucov.UCovLibraryClientsProject;
+import com.github.ucov.UCovLibraryProject;
+import com.github.ucov.api.ApiSnapshot;
+import com.github.ucov.api.ApiSymbolIndex;
+import com.github.ucov.cache.UsageCache;
+import com.github.ucov.models.Project;
+import com.github.ucov.models.ProjectType;
+import com.github.ucov.models.UsageStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+/**
+ * The state every client analysis of a library shares: the API index, the library binaries (if shared)
+ * and the usage cache. A session is built once and can then analyse any number of clients, until it is
+ * closed: the library binaries are then deleted, once the analyses in progress are over.
+ */
+public class SUFSession implements AutoCloseable {
+    private final ApiSymbolIndex apiSymbolIndex;
+    private final UCovLibraryProject externalProject;
+    private final String[] libraryClasspath;
+    private final UsageCache usageCache;
+    private final SUFOptions options;
+    // Analyses hold the read lock, closing the session takes the write lock
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private boolean closed = false;
+
+    public SUFSession(ApiSnapshot mainProjectApiModel, UCovLibraryProject externalProject, SUFOptions options) {
+        // Index the API once, every client analysis shares it
+        this(new ApiSymbolIndex(mainProjectApiModel), externalProject, options);
+    }
+
+    public SUFSession(ApiSymbolIndex apiSymbolIndex, UCovLibraryProject externalProject, SUFOptions options) {
+        this.apiSymbolIndex = apiSymbolIndex;
+        this.externalProject = externalProject;
+        this.options = options;
+
+        // Same for the library binaries, if requested
+        this.libraryClasspath = options.sharedLibrary() ? externalProject.getLibraryClasspath() : null;
+
+        this.usageCache = getUsageCache(options, apiSymbolIndex);
+    }
+
+    public ApiSymbolIndex getApiSymbolIndex() {
+        return apiSymbolIndex;
+    }
+
+    /**
+     * @return Whether clients are resolved against library binaries, rather than parsing the library sources again
+     */
+    public boolean hasLibraryBinaries() {
+        return libraryClasspath != null;
+    }
+
+    /**
+     * Computes how many client analyses may run at once, so that each of them gets its heap budget
+     *
+     * @param workers      The requested number of workers
+     * @param workerHeapMB The heap budget of a single worker in MB, 0 if unbounded
+     * @return The number of workers to actually use, at least 1
+     */
+    public static int getEffectiveWorkers(int workers, int workerHeapMB) {
+        if (workerHeapMB <= 0) {
+            return Math.max(1, workers);
+        }
+
+        long maxHeapMB = Runtime.getRuntime().maxMemory() / (1024 * 1024);
+        int affordableWorkers = (int) Math.max(1, maxHeapMB / workerHeapMB);
+
+        if (affordableWorkers < workers) {
+            Main.UCOV_LOGGER.info("WARNING: Limiting SUF workers to " + affordableWorkers + " (requested " + workers + ") to fit " + workerHeapMB + "MB per worker in a " + maxHeapMB + "MB heap");
+        }
+
+        return Math.max(1, Math.min(workers, affordableWorkers));
+    }
+
+    private static UsageCache getUsageCache(SUFOptions options, ApiSymbolIndex apiSymbolIndex) {
+        if (options.cacheDirectory() == null) {
+            return null;
+        }
+
+        try {
+            return new UsageCache(options.cacheDirectory(), apiSymbolIndex.getFingerprint(), options.getResultFingerprint());
+        } catch (IOException e) {
+            Main.UCOV_LOGGER.info("WARNING: Usage cache disabled, unable to create " + options.cacheDirectory());
+            return null;
+        }
+    }
+
+    /**
+     * @param clientProject The client project to analyse
+     * @return The usages the client makes of the API
+     */
+    public UsageStore analyse(Project clientProject) {
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("The session of " + externalProject.getExternalReferences().keySet() + " is closed");
+            }
+            return analyseClient(clientProject);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    private UsageStore analyseClient(Project clientProject) {
+        Main.UCOV_LOGGER.info("Processing " + clientProject);
+
+        UCovLibraryClientsProject internalProject = new UCovLibraryClientsProject();
+        Path projectLocation = clientProject.location();
+        String projectId = clientProject.id();
+        String projectType = clientProject.type().name();
+
+        EnumSet<CodeType> enumSet = switch (clientProject.type()) {
+            case LIBRARY_MAIN -> EnumSet.of(CodeType.MAIN);
+            case LIBRARY_TEST -> EnumSet.of(CodeType.TEST);
+            case LIBRARY_SAMPLE -> EnumSet.of(CodeType.SAMPLE);
+            case CLIENT_ALL -> CodeType.ALL;
+            case CLIENT_MAIN -> EnumSet.of(CodeType.MAIN);
+            case CLIENT_TEST -> EnumSet.of(CodeType.TEST);
+        };
+
+        // Clients, Tests, Samples...
+        internalProject.addInternalReference(projectLocation, enumSet);
+        internalProject.setShardFiles(options.shardFiles());
+
+        Main.UCOV_LOGGER.info("Fetching Usage models...");
+        return internalProject.getUsageModels(apiSymbolIndex, externalProject.getExternalReferences(), libraryClasspath, usageCache, projectId, projectType, projectLocation);
+    }
+
+    /**
+     * Analyses client projects, see analyse(List, BiConsumer, boolean). The first failing client fails them all.
+     *
+     * @param projects The projects to analyse, the library main project is skipped
+     * @param consumer Receives each client project with its usages
+     */
+    public void analyse(List<Project> projects, BiConsumer<Project, UsageStore> consumer) {
+        analyse(projects, consumer, false);
+    }
+
+    /**
+     * Analyses client projects, on as many workers as the options allow. The results are handed to the
+     * consumer on the calling thread, in the order of the projects, whatever the scheduling was. Workers
+     * only run ahead of the consumer by as many results as there are workers, so that at most that many
+     * results are held in memory at once.
+     *
+     * @param projects     The projects to analyse, the library main project is skipped
+     * @param consumer     Receives each client project with its usages
+     * @param skipFailures Whether a client whose analysis fails is logged and skipped, rather than failing all of them
+     */
+    public void analyse(List<Project> projects, BiConsumer<Project, UsageStore> consumer, boolean skipFailures) {
+        List<Project> clientProjects = projects.stream().filter(t -> t.type() != ProjectType.LIBRARY_MAIN).toList();
+
+        int effectiveWorkers = Math.min(getEffectiveWorkers(options.workers(), options.workerHeapMB()), Math.max(1, clientProjects.size()));
+        if (effectiveWorkers == 1) {
+            for (Project project : clientProjects) {
+                UsageStore usageModels;
+                try {
+                    usageModels = analyse(project);
+                } catch (RuntimeException e) {
+                    if (!skipFailures) {
+                        throw e;
+                    }
+                    logFailure(project, e);
+                    continue;
+                }
+                consumer.accept(project, usageModels);
+            }
+            return;
+        }
+
+        Main.UCOV_LOGGER.info("Analysing " + clientProjects.size() + " projects with " + effectiveWorkers + " workers...");
+
+        ExecutorService executor = Executors.newFixedThreadPool(effectiveWorkers);
+        try {
+            // A slot is taken when a project is submitted, and given back once the consumer is done with its result
+            Semaphore slots = new Semaphore(effectiveWorkers);
+            List<Future<UsageStore>> futures = new ArrayList<>(clientProjects.size());
+
+            for (int i = 0; i < clientProjects.size(); i++) {
+                while (futures.size() < clientProjects.size() && slots.tryAcquire()) {
+                    Project project = clientProjects.get(futures.size());
+                    futures.add(executor.submit(() -> analyse(project)));
+                }
+
+                Project project = clientProjects.get(i);
+                try {
+                    consumer.accept(project, futures.set(i, null).get());
+                } catch (ExecutionException e) {
+                    if (!skipFailures) {
+                        throw new IllegalStateException("SUF generation failed", e.getCause());
+                    }
+                    logFailure(project, e.getCause());
+                }
+                slots.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("SUF generation was interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void logFailure(Project project, Throwable cause) {
+        Main.UCOV_LOGGER.info("WARNING: Skipping " + project + ", its analysis failed: " + cause);
+    }
+
+    /**
+     * Waits for the analyses in progress, then releases the library binaries of the session
+     */
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            if (!closed) {
+                closed = true;
+                if (libraryClasspath != null) {
+                    externalProject.releaseLibraryClasspath();
+                }
+            }
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+    }
+}
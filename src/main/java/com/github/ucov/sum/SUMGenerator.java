@@ -1,191 +1,188 @@
 package com.github.ucov.sum;
 
-import com.github.maracas.roseau.api.model.*;
-import com.github.ucov.RoseauFQNGenertor;
+import com.github.maracas.roseau.api.model.Modifier;
+import com.github.ucov.api.ApiSnapshot;
+import com.github.ucov.api.ApiSnapshot.MemberSnapshot;
+import com.github.ucov.api.ApiSnapshot.TypeSnapshot;
 import com.github.ucov.models.Project;
 import com.github.ucov.models.SymbolKind;
 import com.github.ucov.models.SymbolUse;
 import com.github.ucov.models.Usage;
+import com.github.ucov.models.UsageStore;
 
 import java.nio.file.Path;
-import java.util.ArrayList;
 
 public class SUMGenerator {
-    public static ArrayList<Usage> getSUM(API mainProjectApiModel, Project project) {
+    public static UsageStore getSUM(ApiSnapshot mainProjectApiModel, Project project) {
         String projectId = project.id();
         String projectType = project.type().name();
         Path projectLocation = project.location();
 
-        ArrayList<Usage> usageModelCollection = new ArrayList<>();
+        UsageStore usageModelCollection = new UsageStore();
 
-        for (TypeDecl apiType : mainProjectApiModel.getExportedTypes().toList()) {
-            Usage usage = new Usage(
+        for (TypeSnapshot apiType : mainProjectApiModel.types()) {
+            addTypeUsages(usageModelCollection, apiType, projectId, projectType, projectLocation);
+        }
+
+        return usageModelCollection;
+    }
+
+    /**
+     * Computes the SUM rows contributed by a single exported type (the type itself and its members)
+     *
+     * @param apiType The exported type
+     * @param project The library project
+     * @return The usages permitted by this type
+     */
+    public static UsageStore getSUM(TypeSnapshot apiType, Project project) {
+        UsageStore usageModelCollection = new UsageStore();
+        addTypeUsages(usageModelCollection, apiType, project.id(), project.type().name(), project.location());
+        return usageModelCollection;
+    }
+
+    private static void addTypeUsages(UsageStore usageModelCollection, TypeSnapshot apiType, String projectId, String projectType, Path projectLocation) {
+        Usage usage = new Usage(
+                projectId,
+                projectType,
+                apiType.qualifiedName(),
+                SymbolKind.SYMBOL_KIND_TYPE,
+                SymbolUse.SYMBOL_USE_TYPE_REFERENCE,
+                apiType.location(),
+                projectLocation
+        );
+        usageModelCollection.add(usage);
+
+        if (apiType.isInterface()) {
+            usage = new Usage(
                     projectId,
                     projectType,
-                    apiType.getQualifiedName(),
-                    SymbolKind.SYMBOL_KIND_TYPE,
-                    SymbolUse.SYMBOL_USE_TYPE_REFERENCE,
-                    apiType.getLocation(),
+                    apiType.qualifiedName(),
+                    SymbolKind.SYMBOL_KIND_INTERFACE,
+                    SymbolUse.SYMBOL_USE_EXTENSION,
+                    apiType.location(),
                     projectLocation
             );
-            if (!usageModelCollection.contains(usage)) {
-                usageModelCollection.add(usage);
-            }
+            usageModelCollection.add(usage);
+
+            usage = new Usage(
+                    projectId,
+                    projectType,
+                    apiType.qualifiedName(),
+                    SymbolKind.SYMBOL_KIND_INTERFACE,
+                    SymbolUse.SYMBOL_USE_IMPLEMENTATION,
+                    apiType.location(),
+                    projectLocation
+            );
+            usageModelCollection.add(usage);
+        }
+
+        if (apiType.isClass() &&
+                !apiType.modifiers().contains(Modifier.FINAL)) {
+            usage = new Usage(
+                    projectId,
+                    projectType,
+                    apiType.qualifiedName(),
+                    SymbolKind.SYMBOL_KIND_CLASS,
+                    SymbolUse.SYMBOL_USE_INHERITANCE,
+                    apiType.location(),
+                    projectLocation
+            );
+            usageModelCollection.add(usage);
+        }
 
-            if (apiType.isInterface()) {
+        if (apiType.isClass()) {
+            for (MemberSnapshot constructor : apiType.constructors()) {
                 usage = new Usage(
                         projectId,
                         projectType,
-                        apiType.getQualifiedName(),
-                        SymbolKind.SYMBOL_KIND_INTERFACE,
-                        SymbolUse.SYMBOL_USE_EXTENSION,
-                        apiType.getLocation(),
+                        constructor.fullyQualifiedName(),
+                        SymbolKind.SYMBOL_KIND_CONSTRUCTOR,
+                        SymbolUse.SYMBOL_USE_INVOCATION,
+                        constructor.location(),
                         projectLocation
                 );
-                if (!usageModelCollection.contains(usage)) {
+                usageModelCollection.add(usage);
+
+                if (!apiType.modifiers().contains(Modifier.ABSTRACT)) {
+                    usage = new Usage(
+                            projectId,
+                            projectType,
+                            apiType.qualifiedName(),
+                            SymbolKind.SYMBOL_KIND_CLASS,
+                            SymbolUse.SYMBOL_USE_INSTANTIATION,
+                            apiType.location(),
+                            projectLocation
+                    );
                     usageModelCollection.add(usage);
                 }
+            }
+        }
 
+        for (MemberSnapshot method : apiType.methods()) {
+            if (!method.modifiers().contains(Modifier.ABSTRACT)) {
+                boolean isStatic = method.modifiers().contains(Modifier.STATIC);
                 usage = new Usage(
                         projectId,
                         projectType,
-                        apiType.getQualifiedName(),
-                        SymbolKind.SYMBOL_KIND_INTERFACE,
-                        SymbolUse.SYMBOL_USE_IMPLEMENTATION,
-                        apiType.getLocation(),
+                        method.fullyQualifiedName(),
+                        SymbolKind.SYMBOL_KIND_METHOD,
+                        isStatic ? SymbolUse.SYMBOL_USE_STATIC_INVOCATION : SymbolUse.SYMBOL_USE_INVOCATION,
+                        method.location(),
                         projectLocation
                 );
-                if (!usageModelCollection.contains(usage)) {
-                    usageModelCollection.add(usage);
-                }
+                usageModelCollection.add(usage);
             }
 
-            if (apiType.isClass() &&
-                    !apiType.getModifiers().contains(Modifier.FINAL)) {
+            if (!method.modifiers().contains(Modifier.FINAL)) {
                 usage = new Usage(
                         projectId,
                         projectType,
-                        apiType.getQualifiedName(),
-                        SymbolKind.SYMBOL_KIND_CLASS,
-                        SymbolUse.SYMBOL_USE_INHERITANCE,
-                        apiType.getLocation(),
+                        method.fullyQualifiedName(),
+                        SymbolKind.SYMBOL_KIND_METHOD,
+                        SymbolUse.SYMBOL_USE_OVERRIDING,
+                        method.location(),
                         projectLocation
                 );
-                if (!usageModelCollection.contains(usage)) {
-                    usageModelCollection.add(usage);
-                }
-            }
+                usageModelCollection.add(usage);
 
-            if (apiType.isClass()) {
-                for (ConstructorDecl constructor : ((ClassDecl) apiType).getConstructors()) {
-                    usage = new Usage(
-                            projectId,
-                            projectType,
-                            RoseauFQNGenertor.getFullyQualifiedNameFromRoseauConstructorDecl(constructor),
-                            SymbolKind.SYMBOL_KIND_CONSTRUCTOR,
-                            SymbolUse.SYMBOL_USE_INVOCATION,
-                            constructor.getLocation(),
-                            projectLocation
-                    );
-                    if (!usageModelCollection.contains(usage)) {
-                        usageModelCollection.add(usage);
-                    }
-
-                    if (!apiType.getModifiers().contains(Modifier.ABSTRACT)) {
-                        usage = new Usage(
-                                projectId,
-                                projectType,
-                                apiType.getQualifiedName(),
-                                SymbolKind.SYMBOL_KIND_CLASS,
-                                SymbolUse.SYMBOL_USE_INSTANTIATION,
-                                apiType.getLocation(),
-                                projectLocation
-                        );
-                        if (!usageModelCollection.contains(usage)) {
-                            usageModelCollection.add(usage);
-                        }
-                    }
-                }
+                // Methods must be overridable to be virtually invokable
+                usage = new Usage(
+                        projectId,
+                        projectType,
+                        method.fullyQualifiedName(),
+                        SymbolKind.SYMBOL_KIND_METHOD,
+                        SymbolUse.SYMBOL_USE_VIRTUAL_INVOCATION,
+                        method.location(),
+                        projectLocation
+                );
+                usageModelCollection.add(usage);
             }
+        }
 
-            for (MethodDecl method : apiType.getAllMethods().toList()) {
-                if (!method.getModifiers().contains(Modifier.ABSTRACT)) {
-                    boolean isStatic = method.getModifiers().contains(Modifier.STATIC);
-                    usage = new Usage(
-                            projectId,
-                            projectType,
-                            RoseauFQNGenertor.getFullyQualifiedNameFromRoseauMethodDecl(method),
-                            SymbolKind.SYMBOL_KIND_METHOD,
-                            isStatic ? SymbolUse.SYMBOL_USE_STATIC_INVOCATION : SymbolUse.SYMBOL_USE_INVOCATION,
-                            method.getLocation(),
-                            projectLocation
-                    );
-                    if (!usageModelCollection.contains(usage)) {
-                        usageModelCollection.add(usage);
-                    }
-                }
-
-                if (!method.getModifiers().contains(Modifier.FINAL)) {
-                    usage = new Usage(
-                            projectId,
-                            projectType,
-                            RoseauFQNGenertor.getFullyQualifiedNameFromRoseauMethodDecl(method),
-                            SymbolKind.SYMBOL_KIND_METHOD,
-                            SymbolUse.SYMBOL_USE_OVERRIDING,
-                            method.getLocation(),
-                            projectLocation
-                    );
-                    if (!usageModelCollection.contains(usage)) {
-                        usageModelCollection.add(usage);
-                    }
-
-                    // Methods must be overridable to be virtually invokable
-                    usage = new Usage(
-                            projectId,
-                            projectType,
-                            RoseauFQNGenertor.getFullyQualifiedNameFromRoseauMethodDecl(method),
-                            SymbolKind.SYMBOL_KIND_METHOD,
-                            SymbolUse.SYMBOL_USE_VIRTUAL_INVOCATION,
-                            method.getLocation(),
-                            projectLocation
-                    );
-                    if (!usageModelCollection.contains(usage)) {
-                        usageModelCollection.add(usage);
-                    }
-                }
-            }
+        for (MemberSnapshot field : apiType.fields()) {
+            usage = new Usage(
+                    projectId,
+                    projectType,
+                    field.fullyQualifiedName(),
+                    SymbolKind.SYMBOL_KIND_FIELD,
+                    SymbolUse.SYMBOL_USE_INSTANCE_FIELD_READ,
+                    field.location(),
+                    projectLocation
+            );
+            usageModelCollection.add(usage);
 
-            for (FieldDecl field : apiType.getAllFields().toList()) {
+            if (!field.modifiers().contains(Modifier.FINAL)) {
                 usage = new Usage(
                         projectId,
                         projectType,
-                        field.getQualifiedName(),
+                        field.fullyQualifiedName(),
                         SymbolKind.SYMBOL_KIND_FIELD,
-                        SymbolUse.SYMBOL_USE_INSTANCE_FIELD_READ,
-                        field.getLocation(),
+                        SymbolUse.SYMBOL_USE_INSTANCE_FIELD_WRITE,
+                        field.location(),
                         projectLocation
                 );
-                if (!usageModelCollection.contains(usage)) {
-                    usageModelCollection.add(usage);
-                }
-
-                if (!field.getModifiers().contains(Modifier.FINAL)) {
-                    usage = new Usage(
-                            projectId,
-                            projectType,
-                            field.getQualifiedName(),
-                            SymbolKind.SYMBOL_KIND_FIELD,
-                            SymbolUse.SYMBOL_USE_INSTANCE_FIELD_WRITE,
-                            field.getLocation(),
-                            projectLocation
-                    );
-                    if (!usageModelCollection.contains(usage)) {
-                        usageModelCollection.add(usage);
-                    }
-                }
+                usageModelCollection.add(usage);
             }
         }
-
-        return usageModelCollection;
     }
 }
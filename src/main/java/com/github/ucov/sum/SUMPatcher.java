@@ -0,0 +1,232 @@
+package com.github.ucov.sum;
+
+import com.github.maracas.roseau.api.model.SourceLocation;
+import com.github.ucov.Main;
+import com.github.ucov.api.ApiSnapshot;
+import com.github.ucov.api.ApiSnapshot.MemberSnapshot;
+import com.github.ucov.api.ApiSnapshot.TypeSnapshot;
+import com.github.ucov.api.ApiSymbolIndex;
+import com.github.ucov.models.Project;
+import com.github.ucov.models.Usage;
+import com.github.ucov.reports.csv.CSVGenerator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Updates an existing SUM after a library version change, by diffing the previous and current API
+ * models type by type, instead of regenerating the whole report. A SUM that does not match the previous
+ * API, or that was generated from another library location, cannot be patched and must be regenerated.
+ */
+public class SUMPatcher {
+    /**
+     * The SUM rows that differ between two API models
+     *
+     * @param addedTypes   Exported types only found in the current API
+     * @param removedTypes Exported types only found in the previous API
+     * @param changedTypes Exported types found in both APIs whose signature (modifiers, members) differs
+     * @param movedTypes   Exported types found in both APIs with the same signature, declared at other positions
+     * @param addedRows    Rows to add to the previous SUM
+     * @param removedRows  Rows to remove from the previous SUM
+     */
+    public record SUMPatch(SortedSet<String> addedTypes, SortedSet<String> removedTypes,
+                           SortedSet<String> changedTypes, SortedSet<String> movedTypes,
+                           SortedSet<String> addedRows, SortedSet<String> removedRows) {
+        public boolean isEmpty() {
+            return addedRows.isEmpty() && removedRows.isEmpty();
+        }
+    }
+
+    private static Map<String, TypeSnapshot> getTypesByName(ApiSnapshot api) {
+        Map<String, TypeSnapshot> types = new HashMap<>();
+        for (TypeSnapshot apiType : api.types()) {
+            types.putIfAbsent(apiType.qualifiedName(), apiType);
+        }
+        return types;
+    }
+
+    private static MemberSnapshot getSignature(MemberSnapshot member) {
+        return new MemberSnapshot(member.fullyQualifiedName(), member.modifiers(), SourceLocation.NO_LOCATION);
+    }
+
+    private static List<MemberSnapshot> getSignatures(List<MemberSnapshot> members) {
+        return members.stream().map(SUMPatcher::getSignature).toList();
+    }
+
+    /**
+     * @return The type without any source position, equal for two versions of a type with the same API
+     */
+    static TypeSnapshot getSignature(TypeSnapshot apiType) {
+        return new TypeSnapshot(apiType.qualifiedName(), apiType.isInterface(), apiType.isClass(), apiType.modifiers(),
+                SourceLocation.NO_LOCATION, getSignatures(apiType.constructors()), getSignatures(apiType.methods()),
+                getSignatures(apiType.fields()));
+    }
+
+    private static Set<String> getRows(TypeSnapshot apiType, Project project, Set<String> names) {
+        Set<String> rows = new HashSet<>();
+        for (Usage usage : SUMGenerator.getSUM(apiType, project)) {
+            rows.add(usage.toCSVRowString());
+            names.add(usage.fullyQualifiedName());
+        }
+        return rows;
+    }
+
+    /**
+     * @return Whether a type contributes rows about one of the given symbols, i.e. itself or its members
+     */
+    private static boolean declaresAny(TypeSnapshot apiType, Set<String> names) {
+        if (names.contains(apiType.qualifiedName())) {
+            return true;
+        }
+        for (List<MemberSnapshot> members : List.of(apiType.constructors(), apiType.methods(), apiType.fields())) {
+            for (MemberSnapshot member : members) {
+                if (names.contains(member.fullyQualifiedName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes the rows that must change in the SUM of the previous API to obtain the SUM of the current one.
+     * Rows are only generated for the types that were added, removed, changed or moved (rows carry positions),
+     * and for the unchanged types that share a symbol with them.
+     *
+     * @param previousApiModel The API the existing SUM was generated from
+     * @param currentApiModel  The API the SUM must now describe
+     * @param project          The library project
+     * @return The differences between the two SUMs
+     */
+    public static SUMPatch diff(ApiSnapshot previousApiModel, ApiSnapshot currentApiModel, Project project) {
+        Map<String, TypeSnapshot> previousTypes = getTypesByName(previousApiModel);
+        Map<String, TypeSnapshot> currentTypes = getTypesByName(currentApiModel);
+
+        SortedSet<String> addedTypes = new TreeSet<>();
+        SortedSet<String> removedTypes = new TreeSet<>();
+        SortedSet<String> changedTypes = new TreeSet<>();
+        SortedSet<String> movedTypes = new TreeSet<>();
+        List<TypeSnapshot> unchangedTypes = new ArrayList<>();
+
+        // Rows of the previous (current) versions of the removed, changed (added, changed) types, and the
+        // symbols they are about
+        Set<String> previousRows = new HashSet<>();
+        Set<String> currentRows = new HashSet<>();
+        Set<String> names = new HashSet<>();
+
+        for (Map.Entry<String, TypeSnapshot> previousType : previousTypes.entrySet()) {
+            TypeSnapshot currentType = currentTypes.get(previousType.getKey());
+            if (currentType == null) {
+                removedTypes.add(previousType.getKey());
+                previousRows.addAll(getRows(previousType.getValue(), project, names));
+                continue;
+            }
+
+            // Snapshots are records, equal snapshots produce the same rows
+            if (previousType.getValue().equals(currentType)) {
+                unchangedTypes.add(currentType);
+                continue;
+            }
+
+            // A type only shifted in its file keeps its API, but its rows still point to the previous lines
+            if (getSignature(previousType.getValue()).equals(getSignature(currentType))) {
+                movedTypes.add(previousType.getKey());
+            } else {
+                changedTypes.add(previousType.getKey());
+            }
+            previousRows.addAll(getRows(previousType.getValue(), project, names));
+            currentRows.addAll(getRows(currentType, project, names));
+        }
+
+        for (Map.Entry<String, TypeSnapshot> currentType : currentTypes.entrySet()) {
+            if (!previousTypes.containsKey(currentType.getKey())) {
+                addedTypes.add(currentType.getKey());
+                currentRows.addAll(getRows(currentType.getValue(), project, names));
+            }
+        }
+
+        // Members are listed by every type inheriting them, so a row may be contributed by several types:
+        // it is only added (removed) if no unchanged type produces it, i.e. was (is still) in the SUM
+        Set<String> unchangedRows = new HashSet<>();
+        for (TypeSnapshot unchangedType : unchangedTypes) {
+            if (declaresAny(unchangedType, names)) {
+                unchangedRows.addAll(getRows(unchangedType, project, new HashSet<>()));
+            }
+        }
+
+        SortedSet<String> addedRows = new TreeSet<>(currentRows);
+        addedRows.removeAll(previousRows);
+        addedRows.removeAll(unchangedRows);
+        SortedSet<String> removedRows = new TreeSet<>(previousRows);
+        removedRows.removeAll(currentRows);
+        removedRows.removeAll(unchangedRows);
+
+        return new SUMPatch(addedTypes, removedTypes, changedTypes, movedTypes, addedRows, removedRows);
+    }
+
+    /**
+     * @return The project location column of the rows of a project, as written by Usage.toCSVRowString()
+     */
+    private static String getProjectLocationColumn(Project project) {
+        return project.location().toAbsolutePath().toString().replace('\\', '/');
+    }
+
+    /**
+     * Applies a patch to a SUM CSV on disk, and writes the rows that moved next to it (SUM path + ".diff").
+     * Nothing is written if the SUM cannot be patched: it then has to be regenerated.
+     *
+     * @param sumLocationPath The SUM CSV generated from the previous API
+     * @param patch           The differences between the previous and current SUMs
+     * @param project         The library project
+     * @param apiSymbolIndex  The current API, for the canonical symbol IDs of the binary report; may be null
+     * @return false if the SUM was generated from another library location, or does not hold every removed row
+     * @throws IOException if the SUM cannot be read or written
+     */
+    public static boolean apply(Path sumLocationPath, SUMPatch patch, Project project, ApiSymbolIndex apiSymbolIndex) throws IOException {
+        Set<String> rows = new HashSet<>(Files.readAllLines(sumLocationPath, StandardCharsets.UTF_8));
+
+        // Rows hold the absolute library location, those of unchanged types would keep the previous one
+        String projectLocation = getProjectLocationColumn(project);
+        for (String row : rows) {
+            String[] elements = row.split("\\|", 4);
+            if (elements.length < 4 || !elements[2].equals(projectLocation)) {
+                Main.UCOV_LOGGER.info("WARNING: " + sumLocationPath + " was not generated from " + projectLocation + ", regenerating it");
+                return false;
+            }
+        }
+
+        int missingRows = 0;
+        for (String removedRow : patch.removedRows()) {
+            if (!rows.remove(removedRow)) {
+                missingRows++;
+            }
+        }
+        if (missingRows > 0) {
+            Main.UCOV_LOGGER.info("WARNING: " + missingRows + " removed rows were not found in " + sumLocationPath + ", it does not match the previous API, regenerating it");
+            return false;
+        }
+
+        Main.UCOV_LOGGER.info("Patching usage model: " + patch.addedTypes().size() + " added, "
+                + patch.removedTypes().size() + " removed, " + patch.changedTypes().size() + " changed and "
+                + patch.movedTypes().size() + " moved types (" + patch.addedRows().size() + " rows added, "
+                + patch.removedRows().size() + " rows removed)");
+
+        List<String> diffRows = new ArrayList<>(patch.addedRows().size() + patch.removedRows().size());
+        patch.removedRows().forEach(t -> diffRows.add("-" + t));
+        patch.addedRows().forEach(t -> diffRows.add("+" + t));
+        Files.write(Path.of(sumLocationPath + ".diff"), diffRows, StandardCharsets.UTF_8);
+
+        if (patch.isEmpty()) {
+            return true;
+        }
+
+        rows.addAll(patch.addedRows());
+
+        CSVGenerator.InitializeUsageReport(sumLocationPath);
+        CSVGenerator.writeApiUsageReportRows(sumLocationPath, rows.stream(), apiSymbolIndex);
+        return true;
+    }
+}
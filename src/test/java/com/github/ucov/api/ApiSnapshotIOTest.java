@@ -0,0 +1,91 @@
+package com.github.ucov.api;
+
+import com.github.maracas.roseau.api.model.Modifier;
+import com.github.maracas.roseau.api.model.SourceLocation;
+import com.github.ucov.Main;
+import com.github.ucov.api.ApiSnapshot.MemberSnapshot;
+import com.github.ucov.api.ApiSnapshot.TypeSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApiSnapshotIOTest {
+    @TempDir
+    Path directory;
+
+    private static ApiSnapshot getSnapshot() {
+        Path file = Path.of("/projects/lib/src/lib/Type.java");
+        TypeSnapshot type = new TypeSnapshot("lib.Type", false, true, Set.of(Modifier.PUBLIC, Modifier.ABSTRACT),
+                new SourceLocation(file, 3),
+                List.of(new MemberSnapshot("lib.Type", Set.of(Modifier.PROTECTED), new SourceLocation(file, 5))),
+                List.of(new MemberSnapshot("lib.Type.method(java.util.Map<K,V>,int)", Set.of(Modifier.PUBLIC, Modifier.FINAL), new SourceLocation(file, 7)),
+                        new MemberSnapshot("java.lang.Object.toString()", Set.of(Modifier.PUBLIC), new SourceLocation(null, -1))),
+                List.of(new MemberSnapshot("lib.Type.FIELD", Set.of(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL), new SourceLocation(file, 4))));
+        TypeSnapshot nestedType = new TypeSnapshot("lib.Type$Nested", true, false, Set.of(),
+                new SourceLocation(file, 10), List.of(), List.of(), List.of());
+        return new ApiSnapshot(List.of(type, nestedType));
+    }
+
+    @Test
+    void readsWhatItWrote() throws IOException {
+        Path snapshotPath = ApiSnapshotIO.getSnapshotPath(directory.resolve("lib.API.json"));
+        assertEquals(directory.resolve("lib.API.bin"), snapshotPath);
+
+        ApiSnapshot snapshot = getSnapshot();
+        ApiSnapshotIO.write(snapshotPath, snapshot);
+
+        assertEquals(snapshot, ApiSnapshotIO.read(snapshotPath));
+    }
+
+    @Test
+    void rejectsAnotherFormatVersion() throws IOException {
+        Path snapshotPath = directory.resolve("lib.API.bin");
+        ApiSnapshotIO.write(snapshotPath, getSnapshot());
+
+        // MAGIC, then the format version
+        byte[] bytes = Files.readAllBytes(snapshotPath);
+        ByteBuffer.wrap(bytes).putInt(Integer.BYTES, Integer.MAX_VALUE);
+        Files.write(snapshotPath, bytes);
+
+        assertThrows(IOException.class, () -> ApiSnapshotIO.read(snapshotPath));
+    }
+
+    @Test
+    void rejectsAnotherUCovVersion() throws IOException {
+        Path snapshotPath = directory.resolve("lib.API.bin");
+        ApiSnapshotIO.write(snapshotPath, getSnapshot());
+
+        // MAGIC, format version, then the length and bytes of the UCov version string, replaced by another one of the same length
+        byte[] bytes = Files.readAllBytes(snapshotPath);
+        byte[] version = Main.VERSION.getBytes(StandardCharsets.UTF_8);
+        int versionOffset = 3 * Integer.BYTES;
+        for (int i = 0; i < version.length; i++) {
+            assertEquals(version[i], bytes[versionOffset + i]);
+            bytes[versionOffset + i] = (byte) (version[i] == '9' ? '8' : '9');
+        }
+        Files.write(snapshotPath, bytes);
+
+        assertThrows(IOException.class, () -> ApiSnapshotIO.read(snapshotPath));
+    }
+
+    @Test
+    void rejectsTruncatedSnapshots() throws IOException {
+        Path snapshotPath = directory.resolve("lib.API.bin");
+        ApiSnapshotIO.write(snapshotPath, getSnapshot());
+
+        byte[] bytes = Files.readAllBytes(snapshotPath);
+        Files.write(snapshotPath, Arrays.copyOf(bytes, bytes.length - 5));
+
+        assertThrows(IOException.class, () -> ApiSnapshotIO.read(snapshotPath));
+    }
+}
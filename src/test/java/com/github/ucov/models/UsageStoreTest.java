@@ -0,0 +1,130 @@
+package com.github.ucov.models;
+
+import com.github.maracas.roseau.api.model.SourceLocation;
+import com.github.ucov.api.ApiSnapshot;
+import com.github.ucov.api.ApiSnapshot.MemberSnapshot;
+import com.github.ucov.api.ApiSnapshot.TypeSnapshot;
+import com.github.ucov.api.ApiSymbolIndex;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UsageStoreTest {
+    private static final Path PROJECT_LOCATION = Path.of("/projects/client");
+    private static final SymbolKind[] SYMBOL_KINDS = SymbolKind.values();
+    private static final SymbolUse[] SYMBOL_USES = SymbolUse.values();
+
+    private static Usage getUsage(String fullyQualifiedName, SymbolKind usageKind, SymbolUse usageType, SourceLocation usagePosition) {
+        return new Usage("client", "CLIENT_ALL", fullyQualifiedName, usageKind, usageType, usagePosition, PROJECT_LOCATION);
+    }
+
+    /**
+     * @return usages drawn from a small set of values, so that many of them are equal
+     */
+    private static List<Usage> getRandomUsages(int count, long seed) {
+        Random random = new Random(seed);
+        List<Usage> usages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Path file = PROJECT_LOCATION.resolve("src/Client" + random.nextInt(10) + ".java");
+            SourceLocation position = random.nextInt(20) == 0 ? null : new SourceLocation(file, random.nextInt(50));
+            // lib.Type.method() is the method of the test API
+            String type = "lib.Type" + (random.nextInt(5) == 0 ? "" : random.nextInt(10));
+            usages.add(getUsage(type + ".method()", SYMBOL_KINDS[random.nextInt(SYMBOL_KINDS.length)],
+                    SYMBOL_USES[random.nextInt(SYMBOL_USES.length)], position));
+        }
+        return usages;
+    }
+
+    private static ApiSymbolIndex getApiSymbolIndex() {
+        SourceLocation location = new SourceLocation(Path.of("/projects/lib/src/lib/Type.java"), 1);
+        TypeSnapshot type = new TypeSnapshot("lib.Type", false, true, Set.of(), location, List.of(),
+                List.of(new MemberSnapshot("lib.Type.method()", Set.of(), location)), List.of());
+        return new ApiSymbolIndex(new ApiSnapshot(List.of(type)));
+    }
+
+    @Test
+    void addKeepsFirstOccurrencesInOrder() {
+        List<Usage> usages = getRandomUsages(100_000, 42);
+        UsageStore store = new UsageStore();
+
+        Set<Usage> expected = new LinkedHashSet<>();
+        for (Usage usage : usages) {
+            assertEquals(expected.add(usage), store.add(usage));
+        }
+
+        assertEquals(expected.size(), store.size());
+        assertEquals(new ArrayList<>(expected), store.stream().toList());
+    }
+
+    @Test
+    void containsOnlyAddedUsages() {
+        List<Usage> usages = getRandomUsages(10_000, 7);
+        UsageStore store = new UsageStore();
+        store.addAll(usages.subList(0, usages.size() / 2));
+
+        Set<Usage> added = new HashSet<>(usages.subList(0, usages.size() / 2));
+        for (Usage usage : usages) {
+            assertEquals(added.contains(usage), store.contains(usage));
+        }
+        assertFalse(store.contains(getUsage("lib.Missing", SymbolKind.SYMBOL_KIND_TYPE, SymbolUse.SYMBOL_USE_TYPE_REFERENCE, null)));
+    }
+
+    @Test
+    void keepsUsagesWithoutPosition() {
+        UsageStore store = new UsageStore();
+        Usage usage = getUsage("lib.Type", SymbolKind.SYMBOL_KIND_TYPE, SymbolUse.SYMBOL_USE_TYPE_REFERENCE, null);
+
+        assertTrue(store.add(usage));
+        assertFalse(store.add(usage));
+        assertEquals(usage, store.get(0));
+        assertTrue(store.contains(usage));
+    }
+
+    @Test
+    void apiSymbolsAreTheSameUsagesAsTheirNames() {
+        ApiSymbolIndex apiSymbolIndex = getApiSymbolIndex();
+        ApiSymbol method = apiSymbolIndex.getMethod("lib.Type.method()");
+        SourceLocation position = new SourceLocation(PROJECT_LOCATION.resolve("src/Client.java"), 3);
+        UsageStore store = new UsageStore(apiSymbolIndex);
+
+        assertTrue(store.add("client", "CLIENT_ALL", method, SymbolKind.SYMBOL_KIND_METHOD, SymbolUse.SYMBOL_USE_INVOCATION, position, PROJECT_LOCATION));
+        assertFalse(store.add(getUsage("lib.Type.method()", SymbolKind.SYMBOL_KIND_METHOD, SymbolUse.SYMBOL_USE_INVOCATION, position)));
+        assertTrue(store.add(getUsage("lib.Other", SymbolKind.SYMBOL_KIND_TYPE, SymbolUse.SYMBOL_USE_TYPE_REFERENCE, position)));
+
+        assertEquals(List.of(
+                getUsage("lib.Type.method()", SymbolKind.SYMBOL_KIND_METHOD, SymbolUse.SYMBOL_USE_INVOCATION, position),
+                getUsage("lib.Other", SymbolKind.SYMBOL_KIND_TYPE, SymbolUse.SYMBOL_USE_TYPE_REFERENCE, position)
+        ), store.stream().toList());
+    }
+
+    @Test
+    void addAllStoresMergesAsAddAllUsages() {
+        ApiSymbolIndex apiSymbolIndex = getApiSymbolIndex();
+        List<Usage> first = getRandomUsages(5_000, 1);
+        List<Usage> second = getRandomUsages(5_000, 2);
+
+        UsageStore expected = new UsageStore();
+        expected.addAll(first);
+        expected.addAll(second);
+
+        UsageStore firstStore = new UsageStore(apiSymbolIndex);
+        firstStore.addAll(first);
+        UsageStore secondStore = new UsageStore(apiSymbolIndex);
+        secondStore.addAll(second);
+
+        UsageStore merged = new UsageStore(apiSymbolIndex);
+        merged.addAll(firstStore);
+        merged.addAll(secondStore);
+        merged.addAll(secondStore);
+        assertEquals(expected.stream().toList(), merged.stream().toList());
+
+        // Stores of another index go through their usages
+        UsageStore unindexed = new UsageStore();
+        unindexed.addAll(firstStore);
+        unindexed.addAll(secondStore);
+        assertEquals(expected.stream().toList(), unindexed.stream().toList());
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.ucov.reports.binary;
+
+import com.github.maracas.roseau.api.model.SourceLocation;
+import com.github.ucov.api.ApiSnapshot;
+import com.github.ucov.api.ApiSnapshot.MemberSnapshot;
+import com.github.ucov.api.ApiSnapshot.TypeSnapshot;
+import com.github.ucov.api.ApiSymbolIndex;
+import com.github.ucov.models.ApiSymbol;
+import com.github.ucov.models.SymbolKind;
+import com.github.ucov.models.SymbolUse;
+import com.github.ucov.models.Usage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryReportTest {
+    private static final Path PROJECT_LOCATION = Path.of("/projects/client").toAbsolutePath();
+    private static final SymbolKind[] SYMBOL_KINDS = SymbolKind.values();
+    private static final SymbolUse[] SYMBOL_USES = SymbolUse.values();
+
+    @TempDir
+    Path directory;
+
+    private static ApiSymbolIndex getApiSymbolIndex() {
+        SourceLocation location = new SourceLocation(Path.of("/projects/lib/src/lib/Type.java"), 1);
+        TypeSnapshot type = new TypeSnapshot("lib.Type", false, true, Set.of(), location, List.of(),
+                List.of(new MemberSnapshot("lib.Type.method()", Set.of(), location)),
+                List.of(new MemberSnapshot("lib.Type.field", Set.of(), location)));
+        return new ApiSymbolIndex(new ApiSnapshot(List.of(type)));
+    }
+
+    /**
+     * @return A sorted CSV report, with rows with and without files and lines going back and forth
+     */
+    private Path writeReport(int rowCount) throws IOException {
+        Random random = new Random(rowCount);
+        List<String> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            String name = switch (random.nextInt(4)) {
+                case 0 -> "lib.Type";
+                case 1 -> "lib.Type.method()";
+                case 2 -> "lib.Type.field";
+                default -> "lib.Other" + random.nextInt(10);
+            };
+            SourceLocation position = random.nextInt(10) == 0
+                    ? SourceLocation.NO_LOCATION
+                    : new SourceLocation(PROJECT_LOCATION.resolve("src/Client" + random.nextInt(5) + ".java"), random.nextInt(100_000));
+            rows.add(new Usage("client", "CLIENT_ALL", name, SYMBOL_KINDS[random.nextInt(SYMBOL_KINDS.length)],
+                    SYMBOL_USES[random.nextInt(SYMBOL_USES.length)], position, PROJECT_LOCATION).toCSVRowString());
+        }
+        rows.sort(null);
+
+        Path csvReportPath = directory.resolve("client.SUF.csv");
+        Files.write(csvReportPath, rows, StandardCharsets.UTF_8);
+        return csvReportPath;
+    }
+
+    @Test
+    void readsTheRowsOfTheCSVReport() throws IOException {
+        Path csvReportPath = writeReport(10_000);
+        Path binaryReportPath = BinaryReportFormat.getBinaryReportPath(csvReportPath);
+        assertEquals(directory.resolve("client.SUF.bin"), binaryReportPath);
+
+        BinaryReportWriter.write(csvReportPath, binaryReportPath);
+
+        BinaryReportReader reader = BinaryReportReader.open(binaryReportPath);
+        List<String> rows = new ArrayList<>();
+        BinaryReportReader.Cursor cursor = reader.cursor();
+        while (cursor.next()) {
+            assertEquals(rows.size(), cursor.getRow());
+            assertEquals(ApiSymbol.NO_ID, cursor.getSymbolId());
+            rows.add(cursor.toCSVRowString());
+        }
+
+        assertEquals(Files.readAllLines(csvReportPath, StandardCharsets.UTF_8), rows);
+        assertEquals(rows.size(), reader.getRowCount());
+    }
+
+    @Test
+    void readsTheSymbolIdsOfTheApi() throws IOException {
+        ApiSymbolIndex apiSymbolIndex = getApiSymbolIndex();
+        Path csvReportPath = writeReport(1_000);
+        Path binaryReportPath = BinaryReportFormat.getBinaryReportPath(csvReportPath);
+
+        BinaryReportWriter.write(csvReportPath, binaryReportPath, apiSymbolIndex);
+
+        BinaryReportReader.Cursor cursor = BinaryReportReader.open(binaryReportPath).cursor();
+        while (cursor.next()) {
+            int symbolId = apiSymbolIndex.getSymbolId(cursor.getUsageKind(), cursor.getFullyQualifiedName());
+            assertEquals(symbolId, cursor.getSymbolId());
+            if (symbolId != ApiSymbol.NO_ID) {
+                assertEquals(cursor.getFullyQualifiedName(), apiSymbolIndex.getSymbol(symbolId).fullyQualifiedName());
+            }
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path csvReportPath = writeReport(10);
+        assertThrows(IOException.class, () -> BinaryReportReader.open(csvReportPath));
+    }
+}
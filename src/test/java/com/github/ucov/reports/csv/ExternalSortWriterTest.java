@@ -0,0 +1,68 @@
+package com.github.ucov.reports.csv;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalSortWriterTest {
+    @TempDir
+    Path directory;
+
+    private static List<String> getRandomRows(int count) {
+        Random random = new Random(count);
+        List<String> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Few distinct values, so that runs share rows; non-ASCII characters sort by UTF-16 code unit
+            rows.add("client|CLIENT_ALL|/p|/src/Client" + random.nextInt(50) + ".java(" + random.nextInt(100) + ")|lib.Type" + (random.nextBoolean() ? "\u00e9" : "Z") + random.nextInt(20));
+        }
+        return rows;
+    }
+
+    private List<String> write(List<String> rows, int maxRunRows) throws IOException {
+        Path outputPath = directory.resolve("report.csv");
+        new ExternalSortWriter(outputPath, maxRunRows).write(rows.iterator());
+        return Files.readAllLines(outputPath, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void writesRowsAsAnInMemorySort() throws IOException {
+        List<String> rows = getRandomRows(10_000);
+        List<String> expected = new ArrayList<>(rows);
+        expected.sort(null);
+
+        for (int maxRunRows : new int[]{1, 7, 1_000, 10_000, 1_000_000}) {
+            assertEquals(expected, write(rows, maxRunRows), "maxRunRows=" + maxRunRows);
+        }
+    }
+
+    @Test
+    void writesNoRows() throws IOException {
+        assertEquals(List.of(), write(List.of(), 10));
+    }
+
+    @Test
+    void replacesTheOutput() throws IOException {
+        write(getRandomRows(1_000), 100);
+        assertEquals(List.of("a", "b"), write(List.of("b", "a"), 1));
+        assertEquals(List.of("a", "b"), write(List.of("b", "a"), 10));
+    }
+
+    @Test
+    void deletesItsRuns() throws IOException {
+        write(getRandomRows(1_000), 10);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(directory.resolve("report.csv")), files.toList());
+        }
+    }
+}
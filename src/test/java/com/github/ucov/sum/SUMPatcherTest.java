@@ -0,0 +1,185 @@
+package com.github.ucov.sum;
+
+import com.github.maracas.roseau.api.model.Modifier;
+import com.github.maracas.roseau.api.model.SourceLocation;
+import com.github.ucov.api.ApiSnapshot;
+import com.github.ucov.api.ApiSnapshot.MemberSnapshot;
+import com.github.ucov.api.ApiSnapshot.TypeSnapshot;
+import com.github.ucov.models.Project;
+import com.github.ucov.models.ProjectType;
+import com.github.ucov.models.Usage;
+import com.github.ucov.sum.SUMPatcher.SUMPatch;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SUMPatcherTest {
+    private static final Path LIBRARY_LOCATION = Path.of("/projects/lib");
+    private static final Project PROJECT = new Project("lib", ProjectType.LIBRARY_MAIN, LIBRARY_LOCATION);
+
+    @TempDir
+    Path directory;
+
+    private static SourceLocation getLocation(String type, int line) {
+        return new SourceLocation(LIBRARY_LOCATION.resolve("src/" + type.replace('.', '/') + ".java"), line);
+    }
+
+    private static MemberSnapshot getMethod(String fullyQualifiedName, String type, int line) {
+        return new MemberSnapshot(fullyQualifiedName, Set.of(Modifier.PUBLIC), getLocation(type, line));
+    }
+
+    /**
+     * @param shift  Lines inserted at the top of lib/Base.java
+     * @param extra  Whether lib.Base declares lib.Base.extra()
+     * @return lib.Base, its subclass lib.Sub which inherits lib.Base.method(), and lib.Other
+     */
+    private static ApiSnapshot getApi(int shift, boolean extra) {
+        List<MemberSnapshot> baseMethods = new ArrayList<>();
+        baseMethods.add(getMethod("lib.Base.method()", "lib.Base", 5 + shift));
+        if (extra) {
+            baseMethods.add(getMethod("lib.Base.extra()", "lib.Base", 8 + shift));
+        }
+        TypeSnapshot base = new TypeSnapshot("lib.Base", false, true, Set.of(Modifier.PUBLIC), getLocation("lib.Base", 3 + shift),
+                List.of(getMethod("lib.Base.Base()", "lib.Base", 4 + shift)), baseMethods, List.of());
+        TypeSnapshot sub = new TypeSnapshot("lib.Sub", false, true, Set.of(Modifier.PUBLIC), getLocation("lib.Sub", 3),
+                List.of(), List.of(getMethod("lib.Base.method()", "lib.Base", 5 + shift)), List.of());
+        TypeSnapshot other = new TypeSnapshot("lib.Other", true, false, Set.of(Modifier.PUBLIC), getLocation("lib.Other", 3),
+                List.of(), List.of(), List.of());
+        return new ApiSnapshot(List.of(base, sub, other));
+    }
+
+    private static SortedSet<String> getRows(ApiSnapshot api) {
+        SortedSet<String> rows = new TreeSet<>();
+        SUMGenerator.getSUM(api, PROJECT).stream().map(Usage::toCSVRowString).forEach(rows::add);
+        return rows;
+    }
+
+    private static SortedSet<String> getPatchedRows(ApiSnapshot previousApi, SUMPatch patch) {
+        SortedSet<String> rows = getRows(previousApi);
+        assertTrue(rows.containsAll(patch.removedRows()));
+        rows.removeAll(patch.removedRows());
+        rows.addAll(patch.addedRows());
+        return rows;
+    }
+
+    @Test
+    void sameApiGivesAnEmptyPatch() {
+        SUMPatch patch = SUMPatcher.diff(getApi(0, false), getApi(0, false), PROJECT);
+
+        assertTrue(patch.isEmpty());
+        assertTrue(patch.addedTypes().isEmpty());
+        assertTrue(patch.removedTypes().isEmpty());
+        assertTrue(patch.changedTypes().isEmpty());
+        assertTrue(patch.movedTypes().isEmpty());
+    }
+
+    @Test
+    void shiftedTypesAreMovedNotChanged() {
+        ApiSnapshot previousApi = getApi(0, false);
+        ApiSnapshot currentApi = getApi(2, false);
+        SUMPatch patch = SUMPatcher.diff(previousApi, currentApi, PROJECT);
+
+        // lib.Sub lists the shifted lib.Base.method()
+        assertEquals(new TreeSet<>(Set.of("lib.Base", "lib.Sub")), patch.movedTypes());
+        assertTrue(patch.changedTypes().isEmpty());
+        assertFalse(patch.isEmpty());
+        assertEquals(getRows(currentApi), getPatchedRows(previousApi, patch));
+    }
+
+    @Test
+    void addedAndRemovedMembersChangeTheirType() {
+        ApiSnapshot previousApi = getApi(0, false);
+        ApiSnapshot currentApi = getApi(0, true);
+
+        SUMPatch patch = SUMPatcher.diff(previousApi, currentApi, PROJECT);
+        assertEquals(new TreeSet<>(Set.of("lib.Base")), patch.changedTypes());
+        assertTrue(patch.movedTypes().isEmpty());
+        assertTrue(patch.removedRows().isEmpty());
+        assertFalse(patch.addedRows().isEmpty());
+        assertTrue(patch.addedRows().stream().allMatch(t -> t.contains("lib.Base.extra()")));
+        assertEquals(getRows(currentApi), getPatchedRows(previousApi, patch));
+
+        patch = SUMPatcher.diff(currentApi, previousApi, PROJECT);
+        assertEquals(new TreeSet<>(Set.of("lib.Base")), patch.changedTypes());
+        assertTrue(patch.addedRows().isEmpty());
+        assertTrue(patch.removedRows().stream().allMatch(t -> t.contains("lib.Base.extra()")));
+        assertEquals(getRows(previousApi), getPatchedRows(currentApi, patch));
+    }
+
+    @Test
+    void inheritedRowsStayWhileAnotherTypeContributesThem() {
+        ApiSnapshot previousApi = getApi(0, false);
+        ApiSnapshot currentApi = new ApiSnapshot(previousApi.types().stream()
+                .filter(t -> !t.qualifiedName().equals("lib.Sub"))
+                .toList());
+
+        SUMPatch patch = SUMPatcher.diff(previousApi, currentApi, PROJECT);
+        assertEquals(new TreeSet<>(Set.of("lib.Sub")), patch.removedTypes());
+        // lib.Base still declares lib.Base.method()
+        assertTrue(patch.removedRows().stream().noneMatch(t -> t.contains("lib.Base.method()")));
+        assertEquals(getRows(currentApi), getPatchedRows(previousApi, patch));
+    }
+
+    @Test
+    void addedAndRemovedTypes() {
+        ApiSnapshot previousApi = getApi(0, false);
+        TypeSnapshot added = new TypeSnapshot("lib.Added", false, true, Set.of(Modifier.PUBLIC, Modifier.FINAL), getLocation("lib.Added", 3),
+                List.of(), List.of(), List.of(new MemberSnapshot("lib.Added.FIELD", Set.of(Modifier.PUBLIC), getLocation("lib.Added", 4))));
+        List<TypeSnapshot> currentTypes = new ArrayList<>(previousApi.types().stream()
+                .filter(t -> !t.qualifiedName().equals("lib.Other"))
+                .toList());
+        currentTypes.add(added);
+        ApiSnapshot currentApi = new ApiSnapshot(currentTypes);
+
+        SUMPatch patch = SUMPatcher.diff(previousApi, currentApi, PROJECT);
+        assertEquals(new TreeSet<>(Set.of("lib.Added")), patch.addedTypes());
+        assertEquals(new TreeSet<>(Set.of("lib.Other")), patch.removedTypes());
+        assertEquals(getRows(currentApi), getPatchedRows(previousApi, patch));
+    }
+
+    @Test
+    void applyPatchesTheSum() throws IOException {
+        ApiSnapshot previousApi = getApi(0, false);
+        ApiSnapshot currentApi = getApi(2, true);
+        Path sumPath = directory.resolve("lib.SUM.csv");
+        Files.write(sumPath, getRows(previousApi), StandardCharsets.UTF_8);
+
+        SUMPatch patch = SUMPatcher.diff(previousApi, currentApi, PROJECT);
+        assertTrue(SUMPatcher.apply(sumPath, patch, PROJECT, null));
+
+        assertEquals(new ArrayList<>(getRows(currentApi)), Files.readAllLines(sumPath, StandardCharsets.UTF_8));
+        assertEquals(patch.addedRows().size() + patch.removedRows().size(),
+                Files.readAllLines(Path.of(sumPath + ".diff"), StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    void applyRejectsSumsOfAnotherApi() throws IOException {
+        Path sumPath = directory.resolve("lib.SUM.csv");
+        List<String> rows = new ArrayList<>(getRows(getApi(1, false)));
+        Files.write(sumPath, rows, StandardCharsets.UTF_8);
+
+        SUMPatch patch = SUMPatcher.diff(getApi(0, false), getApi(2, false), PROJECT);
+        assertFalse(SUMPatcher.apply(sumPath, patch, PROJECT, null));
+
+        // The SUM is left as it was, to be regenerated
+        assertEquals(rows, Files.readAllLines(sumPath, StandardCharsets.UTF_8));
+        assertFalse(Files.exists(Path.of(sumPath + ".diff")));
+    }
+
+    @Test
+    void applyRejectsSumsOfAnotherLocation() throws IOException {
+        Path sumPath = directory.resolve("lib.SUM.csv");
+        Files.write(sumPath, getRows(getApi(0, false)), StandardCharsets.UTF_8);
+
+        Project movedProject = new Project("lib", ProjectType.LIBRARY_MAIN, Path.of("/projects/moved/lib"));
+        SUMPatch patch = SUMPatcher.diff(getApi(0, false), getApi(0, true), movedProject);
+        assertFalse(SUMPatcher.apply(sumPath, patch, movedProject, null));
+    }
+}